@@ -0,0 +1,405 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+// Processamento em lote: aplica uma cadeia de operações a todas as imagens de um diretório
+// (ou de uma lista de arquivos, um por linha) e grava o resultado em outro diretório.
+//
+//   java BatchRunner entrada saida cinza,otsu
+//   java BatchRunner lista.txt saida gauss:5,sobel
+//
+// Operações: cinza, otsu, media[:N], gauss[:N] (binomial; gaussiano acima de 15), sobel,
+// laplaciano, gradiente (os detectores do PassaAlta) e fft (realce passa-alta do Fourier,
+// sobre o cinza). A saída de a.jpg é a.jpg.png (ou a extensão do formato escolhido).
+//
+// Leitura, cálculo e gravação são três estágios ligados por filas limitadas: enquanto uma
+// imagem é calculada, as próximas já estão sendo decodificadas e as anteriores gravadas, e
+// uma fila cheia segura o estágio anterior, então a memória fica limitada ao tamanho das
+// filas. A leitura e a gravação rodam em threads virtuais quando a JVM tem (Java 21+) e num
+// pool comum quando não; o cálculo usa uma thread por núcleo, cada uma com uma imagem
+// inteira, e por isso essas threads rodam os filtros em série (Parallel.serial), sem
+// mexer no Parallel do resto do processo.
+// Configuração: -Dprocessamento.lote.io=N (leitores e gravadores, padrão 8),
+// -Dprocessamento.lote.fila=N (capacidade de cada fila, padrão 2 por thread de cálculo),
+// -Dprocessamento.lote.formato=png e -Dprocessamento.threads=N (threads de cálculo).
+public class BatchRunner {
+    public interface Operation {
+        BufferedImage apply(BufferedImage image);
+    }
+
+    // Marca de fim nas filas
+    private static final Job END = new Job(null, null);
+
+    private final List<Operation> operations;
+    private final File outputDir;
+    private final String format;
+    private final int ioThreads;
+    private final int computeThreads;
+    private final BlockingQueue<Job> decoded;
+    private final BlockingQueue<Job> computed;
+
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final AtomicLong computeNanos = new AtomicLong();
+    private final AtomicLong encodeNanos = new AtomicLong();
+    private final AtomicInteger maxDecoded = new AtomicInteger();
+    private final AtomicInteger maxComputed = new AtomicInteger();
+
+    public BatchRunner(List<Operation> operations, File outputDir, String format, int ioThreads,
+            int computeThreads, int queueCapacity) {
+        this.operations = operations;
+        this.outputDir = outputDir;
+        this.format = format;
+        this.ioThreads = ioThreads;
+        this.computeThreads = computeThreads;
+        this.decoded = new ArrayBlockingQueue<>(queueCapacity);
+        this.computed = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.out.println("Uso: java BatchRunner <diretório|lista.txt> <saída> <op1,op2,...>");
+            System.out.println("Operações: cinza, otsu, media[:N], gauss[:N], sobel, laplaciano, gradiente, fft");
+            return;
+        }
+        List<Operation> operations;
+        try {
+            operations = parseOperations(args[2]);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Operações inválidas (" + e.getMessage() + ")");
+            System.out.println("Operações: cinza, otsu, media[:N], gauss[:N], sobel, laplaciano, gradiente, fft");
+            return;
+        }
+        List<File> files = inputFiles(new File(args[0]));
+        File outputDir = new File(args[1]);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Não foi possível criar " + outputDir);
+        }
+        int computeThreads = Parallel.getParallelism();
+        BatchRunner runner = new BatchRunner(operations, outputDir,
+                System.getProperty("processamento.lote.formato", "png"),
+                Integer.getInteger("processamento.lote.io", 8), computeThreads,
+                Integer.getInteger("processamento.lote.fila", 2 * computeThreads));
+        System.out.println(files.size() + " imagens, " + computeThreads + " threads de cálculo, E/S em "
+                + (virtualThreads() ? "threads virtuais" : "pool de threads"));
+        runner.run(files, true);
+    }
+
+    // Arquivos de imagem de um diretório (em ordem de nome) ou as linhas de uma lista
+    static List<File> inputFiles(File input) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (input.isDirectory()) {
+            Set<String> suffixes = new HashSet<>();
+            for (String suffix : ImageIO.getReaderFileSuffixes()) {
+                suffixes.add(suffix.toLowerCase(Locale.ROOT));
+            }
+            File[] entries = input.listFiles();
+            if (entries != null) {
+                Arrays.sort(entries);
+                for (File file : entries) {
+                    String name = file.getName();
+                    String suffix = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+                    if (file.isFile() && suffixes.contains(suffix)) {
+                        files.add(file);
+                    }
+                }
+            }
+            return files;
+        }
+        for (String line : Files.readAllLines(input.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.trim().isEmpty()) {
+                files.add(new File(line.trim()));
+            }
+        }
+        return files;
+    }
+
+    // Cadeia de operações separadas por vírgula; o tamanho do kernel vem depois de ":"
+    static List<Operation> parseOperations(String spec) {
+        List<Operation> operations = new ArrayList<>();
+        for (String item : spec.split(",")) {
+            String[] parts = item.trim().split(":");
+            int size = parts.length > 1 ? Integer.parseInt(parts[1]) : 3;
+            if (size < 1) {
+                throw new IllegalArgumentException("tamanho " + size + " em " + item.trim());
+            }
+            operations.add(operation(parts[0], size));
+        }
+        return operations;
+    }
+
+    static Operation operation(String name, int size) {
+        switch (name) {
+            case "cinza":
+                return Otzu::grayscale;
+            case "otsu":
+                return image -> Otzu.binarize(image).binaryImage();
+            case "media":
+                return convolution(FilterEngine.boxKernel(size));
+            case "gauss":
+                // Binomial até 15x15 (limite dos pesos inteiros); acima, o gaussiano amostrado do
+                // StripStream, com sigma = N / 6
+                return convolution(size <= 15 ? FilterEngine.binomialKernel(size)
+                        : FilterEngine.gaussianKernel(size, size / 6.0));
+            case "sobel":
+                return edges(FilterEngine.SOBEL);
+            case "laplaciano":
+                return edges(FilterEngine.LAPLACIAN);
+            case "gradiente":
+                return edges(FilterEngine.GRADIENT);
+            case "fft":
+                // Só o realce: a imagem do espectro do processDouble não é usada aqui
+                return image -> {
+                    PixelBuffer pixels = PixelBuffer.fromImage(image);
+                    return Fourier.enhance(pixels.getChannels() == 1 ? pixels : Otzu.grayBuffer(pixels))
+                            .toImage(BufferedImage.TYPE_BYTE_GRAY);
+                };
+            default:
+                throw new IllegalArgumentException("Operação desconhecida: " + name);
+        }
+    }
+
+    private static Operation convolution(int[][] kernel) {
+        int denominator = FilterEngine.kernelSum(kernel);
+        return image -> FilterEngine.convolve(PixelBuffer.fromImage(image), kernel, denominator)
+                .toImage(image.getType());
+    }
+
+    // Um mapa do PassaAlta (mesmos kernels e tolerância), sobre os canais da imagem
+    private static Operation edges(int map) {
+        return image -> {
+            FilterEngine.EdgeMaps maps = FilterEngine.edges(PixelBuffer.fromImage(image), FilterService.SOBEL_X,
+                    FilterService.SOBEL_Y, FilterService.LAPLACIAN, FilterService.TOLERANCE, map, true, false);
+            PixelBuffer result = map == FilterEngine.SOBEL ? maps.sobel
+                    : map == FilterEngine.LAPLACIAN ? maps.laplacian : maps.gradient;
+            return result.toImage(image.getType());
+        };
+    }
+
+    // Processa todos os arquivos e devolve quantos deram certo. Com report, imprime a cada
+    // segundo o ritmo e a ocupação das filas, e um resumo no fim
+    public int run(List<File> files, boolean report) throws InterruptedException {
+        // Duas entradas com a mesma saída (a.png de pastas diferentes numa lista) se
+        // sobrescreveriam: a segunda conta como erro e não é processada
+        ConcurrentLinkedQueue<File> pending = new ConcurrentLinkedQueue<>();
+        Map<File, File> outputs = new HashMap<>();
+        for (File file : files) {
+            File previous = outputs.putIfAbsent(outputFile(file), file);
+            if (previous != null) {
+                fail(file, new IOException("mesma saída que " + previous + " (" + outputFile(file) + ")"));
+            } else {
+                pending.add(file);
+            }
+        }
+        ExecutorService io = ioExecutor(2 * ioThreads);
+        ExecutorService compute = Executors.newFixedThreadPool(computeThreads);
+        AtomicInteger decoders = new AtomicInteger(ioThreads);
+        AtomicInteger computers = new AtomicInteger(computeThreads);
+        CountDownLatch encoders = new CountDownLatch(ioThreads);
+        long start = System.nanoTime();
+        try {
+            // O último a sair de cada estágio põe uma marca de fim por consumidor na fila seguinte
+            for (int i = 0; i < ioThreads; i++) {
+                io.execute(() -> {
+                    try {
+                        decode(pending);
+                    } finally {
+                        if (decoders.decrementAndGet() == 0) {
+                            finish(decoded, computeThreads);
+                        }
+                    }
+                });
+                io.execute(() -> {
+                    try {
+                        encode();
+                    } finally {
+                        encoders.countDown();
+                    }
+                });
+            }
+            for (int i = 0; i < computeThreads; i++) {
+                compute.execute(() -> {
+                    try {
+                        // Uma imagem inteira por thread: os filtros não dividem em faixas aqui
+                        Parallel.serial(this::compute);
+                    } finally {
+                        if (computers.decrementAndGet() == 0) {
+                            finish(computed, ioThreads);
+                        }
+                    }
+                });
+            }
+            while (!encoders.await(1, TimeUnit.SECONDS)) {
+                if (report) {
+                    System.out.println(progress(files.size(), start));
+                }
+            }
+        } finally {
+            io.shutdown();
+            compute.shutdown();
+        }
+        if (report) {
+            System.out.println(summary(start));
+        }
+        return done.get();
+    }
+
+    private static void finish(BlockingQueue<Job> queue, int consumers) {
+        try {
+            for (int i = 0; i < consumers; i++) {
+                queue.put(END);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void decode(ConcurrentLinkedQueue<File> pending) {
+        File file;
+        while ((file = pending.poll()) != null) {
+            long t0 = System.nanoTime();
+            try {
+                BufferedImage image = ImageIO.read(file);
+                if (image == null) {
+                    throw new IOException("formato não reconhecido");
+                }
+                decodeNanos.addAndGet(System.nanoTime() - t0);
+                decoded.put(new Job(file, image));
+                maxDecoded.accumulateAndGet(decoded.size(), Math::max);
+            } catch (IOException | RuntimeException e) {
+                fail(file, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void compute() {
+        try {
+            Job job;
+            while ((job = decoded.take()) != END) {
+                long t0 = System.nanoTime();
+                try {
+                    BufferedImage image = job.image;
+                    for (Operation operation : operations) {
+                        image = operation.apply(image);
+                    }
+                    computeNanos.addAndGet(System.nanoTime() - t0);
+                    computed.put(new Job(job.file, image));
+                    maxComputed.accumulateAndGet(computed.size(), Math::max);
+                } catch (RuntimeException e) {
+                    fail(job.file, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void encode() {
+        try {
+            Job job;
+            while ((job = computed.take()) != END) {
+                long t0 = System.nanoTime();
+                try {
+                    if (!ImageIO.write(job.image, format, outputFile(job.file))) {
+                        throw new IOException("sem writer para " + format);
+                    }
+                    encodeNanos.addAndGet(System.nanoTime() - t0);
+                    done.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    fail(job.file, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Nome de entrada inteiro mais a extensão do formato (a.jpg vira a.jpg.png), para a.jpg e
+    // a.png não caírem no mesmo arquivo; a.png com saída png continua a.png
+    private File outputFile(File input) {
+        String name = input.getName();
+        String suffix = "." + format;
+        return new File(outputDir, name.toLowerCase(Locale.ROOT).endsWith(suffix.toLowerCase(Locale.ROOT))
+                ? name : name + suffix);
+    }
+
+    // Uma imagem com erro é contada e o lote continua
+    private void fail(File file, Exception e) {
+        failed.incrementAndGet();
+        System.err.println("Erro em " + file + ": " + e);
+    }
+
+    private String progress(int total, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return String.format("%d/%d imagens, %.1f img/s, filas: decodificadas %d/%d, calculadas %d/%d",
+                done.get() + failed.get(), total, done.get() / seconds,
+                decoded.size(), decoded.size() + decoded.remainingCapacity(),
+                computed.size(), computed.size() + computed.remainingCapacity());
+    }
+
+    private String summary(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int count = Math.max(1, done.get());
+        return String.format("%d imagens em %.1f s (%.1f img/s), %d com erro%n"
+                        + "por imagem: leitura %.1f ms, cálculo %.1f ms, gravação %.1f ms%n"
+                        + "fila máxima: decodificadas %d, calculadas %d",
+                done.get(), seconds, done.get() / seconds, failed.get(),
+                decodeNanos.get() / 1e6 / count, computeNanos.get() / 1e6 / count, encodeNanos.get() / 1e6 / count,
+                maxDecoded.get(), maxComputed.get());
+    }
+
+    // Executor de threads virtuais (Java 21+, por reflexão para compilar em versões antigas)
+    // ou, sem elas, um pool fixo com threads suficientes para leitores e gravadores
+    static ExecutorService ioExecutor(int threads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    static boolean virtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static final class Job {
+        final File file;
+        final BufferedImage image;
+
+        Job(File file, BufferedImage image) {
+            this.file = file;
+            this.image = image;
+        }
+    }
+}
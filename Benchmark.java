@@ -0,0 +1,1035 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+// Comparações de desempenho entre as implementações antigas e as novas.
+// Uso: java Benchmark [filtros|fft|otsu] [largura] [altura]
+public class Benchmark {
+    private static final int[][] MEDIA_3x3 = {{1, 1, 1}, {1, 1, 1}, {1, 1, 1}};
+    private static final int[][] GAUSS_5x5 = {
+        {1,  4,  6,  4, 1},
+        {4, 16, 24, 16, 4},
+        {6, 24, 36, 24, 6},
+        {4, 16, 24, 16, 4},
+        {1,  4,  6,  4, 1}
+    };
+    private static final int[][] SOBEL_X = {{-1, 0, 1}, {-2, 0, 2}, {-1, 0, 1}};
+    private static final int[][] SOBEL_Y = {{-1, -2, -1}, {0, 0, 0}, {1, 2, 1}};
+    private static final int[][] LAPLACIAN = {{0, 1, 0}, {1, -4, 1}, {0, 1, 0}};
+
+    public static void main(String[] args) {
+        String section = "filtros";
+        int first = 0;
+        if (args.length > 0 && !Character.isDigit(args[0].charAt(0))) {
+            section = args[0];
+            first = 1;
+        }
+        int width = args.length > first ? Integer.parseInt(args[first]) : 2000;
+        int height = args.length > first + 1 ? Integer.parseInt(args[first + 1]) : 1500;
+
+        if (section.equals("otsu")) {
+            benchmarkOtsu(syntheticImage(width, height, 21));
+            benchmarkMultiLevel(syntheticImage(width, height, 22));
+            return;
+        }
+        if (section.equals("fft")) {
+            benchmarkFFT(Math.max(width, height));
+            benchmarkArbitrarySize();
+            benchmarkRealFFT();
+            benchmarkPlanCache();
+            benchmarkColumnPass();
+            benchmarkFFTThreads(width, height);
+            benchmarkFloatFFT();
+            benchmarkFrequencyStages(width, height);
+            return;
+        }
+
+        BufferedImage image = syntheticImage(width, height, 42);
+        System.out.println("Imagem sintética " + width + "x" + height);
+
+        benchmarkPixelBuffer(image);
+        benchmarkKernelSize(syntheticImage(width / 2, height / 2, 7));
+        benchmarkFFTConvolution(syntheticImage(width / 2, height / 2, 8));
+        benchmarkThreads(image);
+        benchmarkFusedEdges(image);
+    }
+
+    // getRGB/setRGB por pixel contra o PixelBuffer, conferindo se a saída é a mesma
+    private static void benchmarkPixelBuffer(BufferedImage image) {
+        System.out.println("== getRGB/setRGB x PixelBuffer ==");
+        double pixels = (double) image.getWidth() * image.getHeight();
+
+        BufferedImage[] legacy = new BufferedImage[1];
+        BufferedImage[] engine = new BufferedImage[1];
+
+        double t0 = time(() -> legacy[0] = legacyConvolve(image, GAUSS_5x5, 256));
+        double t1 = time(() -> engine[0] = FilterEngine.convolve(PixelBuffer.fromImage(image), GAUSS_5x5, 256)
+                .toImage(image.getType()));
+        report("Gaussiano 5x5", pixels, t0, t1, sameImage(legacy[0], engine[0]));
+
+        t0 = time(() -> legacy[0] = legacyConvolve(image, MEDIA_3x3, 9));
+        t1 = time(() -> engine[0] = FilterEngine.convolve(PixelBuffer.fromImage(image), MEDIA_3x3, 9)
+                .toImage(image.getType()));
+        report("Média 3x3", pixels, t0, t1, sameImage(legacy[0], engine[0]));
+
+        t0 = time(() -> legacy[0] = legacySobel(image, 80));
+        t1 = time(() -> engine[0] = FilterEngine.sobel(PixelBuffer.fromImage(image), SOBEL_X, SOBEL_Y, 80)
+                .toImage(image.getType()));
+        report("Sobel", pixels, t0, t1, sameImage(legacy[0], engine[0]));
+    }
+
+    // Kernels grandes: disco (não separável) contra a convolução direta e gaussiano largo
+    // contra a separável; FilterEngine.convolve escolhe pelo modelo de custo. As duas
+    // convoluções aquecem antes, senão a primeira FFT medida ainda roda sem o JIT
+    private static void benchmarkFFTConvolution(BufferedImage image) {
+        System.out.println("== Kernels grandes: direta / separável x convolve (FFT por blocos) ==");
+        PixelBuffer input = PixelBuffer.fromImage(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double pixels = (double) width * height;
+        PixelBuffer[] reference = new PixelBuffer[1];
+        PixelBuffer[] auto = new PixelBuffer[1];
+
+        int[][] warm = FilterEngine.diskKernel(6);
+        for (int i = 0; i < 5; i++) {
+            FilterEngine.convolveDirect(input, warm, 1);
+            FilterEngine.convolveFFT(input, warm, 1, 64);
+        }
+        for (int radius : new int[] {3, 6, 12, 20}) {
+            int[][] disk = FilterEngine.diskKernel(radius);
+            int diskSum = FilterEngine.kernelSum(disk);
+            int size = disk.length;
+            double t0 = time(() -> reference[0] = FilterEngine.convolveDirect(input, disk, diskSum));
+            double t1 = time(() -> auto[0] = FilterEngine.convolve(input, disk, diskSum));
+            int tile = FilterEngine.chosenTile(disk, width, height);
+            report("Disco " + size + "x" + size + (tile > 0 ? " (bloco " + tile + ")" : " (direta)"),
+                    pixels, t0, t1, samePixels(reference[0], auto[0]));
+        }
+        for (int size : new int[] {31, 63, 101}) {
+            int[][] gauss = FilterEngine.gaussianKernel(size, size / 5.0);
+            int gaussSum = FilterEngine.kernelSum(gauss);
+            int[][] factors = FilterEngine.separate(gauss);
+            double t0 = time(() -> reference[0] = FilterEngine.convolveSeparable(input, factors[0], factors[1],
+                    gaussSum));
+            double t1 = time(() -> auto[0] = FilterEngine.convolve(input, gauss, gaussSum));
+            report("Gaussiano " + size + "x" + size, pixels, t0, t1, samePixels(reference[0], auto[0]));
+        }
+    }
+
+    // Convolução direta (k² por pixel) contra soma deslizante e passadas separáveis
+    private static void benchmarkKernelSize(BufferedImage image) {
+        System.out.println("== Tamanho do kernel: direta x soma deslizante / separável ==");
+        PixelBuffer input = PixelBuffer.fromImage(image);
+        double pixels = (double) image.getWidth() * image.getHeight();
+        PixelBuffer[] direct = new PixelBuffer[1];
+        PixelBuffer[] fast = new PixelBuffer[1];
+
+        for (int size : new int[] {5, 15, 31}) {
+            int[][] box = FilterEngine.boxKernel(size);
+            int boxSum = FilterEngine.kernelSum(box);
+            double t0 = time(() -> direct[0] = FilterEngine.convolveDirect(input, box, boxSum));
+            double t1 = time(() -> fast[0] = FilterEngine.convolve(input, box, boxSum));
+            report("Média " + size + "x" + size, pixels, t0, t1, samePixels(direct[0], fast[0]));
+
+            int[][] gauss = FilterEngine.gaussianKernel(size, size / 4.0);
+            int gaussSum = FilterEngine.kernelSum(gauss);
+            t0 = time(() -> direct[0] = FilterEngine.convolveDirect(input, gauss, gaussSum));
+            t1 = time(() -> fast[0] = FilterEngine.convolve(input, gauss, gaussSum));
+            report("Gaussiano " + size + "x" + size, pixels, t0, t1, samePixels(direct[0], fast[0]));
+        }
+    }
+
+    // Escalabilidade de 1 a N threads; a saída de cada execução é comparada com a serial
+    private static void benchmarkThreads(BufferedImage image) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("== Threads (" + cores + " núcleos disponíveis) ==");
+        PixelBuffer input = PixelBuffer.fromImage(image);
+        int[][] gauss = FilterEngine.gaussianKernel(15, 3.5);
+        int gaussSum = FilterEngine.kernelSum(gauss);
+        int original = Parallel.getParallelism();
+
+        Parallel.setParallelism(1);
+        PixelBuffer serialBlur = FilterEngine.convolve(input, gauss, gaussSum);
+        PixelBuffer serialSobel = FilterEngine.sobel(input, SOBEL_X, SOBEL_Y, 80);
+        double serial = time(() -> {
+            FilterEngine.convolve(input, gauss, gaussSum);
+            FilterEngine.sobel(input, SOBEL_X, SOBEL_Y, 80);
+        });
+
+        for (int threads = 1; threads <= Math.max(4, cores); threads *= 2) {
+            Parallel.setParallelism(threads);
+            PixelBuffer[] blur = new PixelBuffer[1];
+            PixelBuffer[] sobel = new PixelBuffer[1];
+            double elapsed = time(() -> {
+                blur[0] = FilterEngine.convolve(input, gauss, gaussSum);
+                sobel[0] = FilterEngine.sobel(input, SOBEL_X, SOBEL_Y, 80);
+            });
+            boolean same = samePixels(serialBlur, blur[0]) && samePixels(serialSobel, sobel[0]);
+            System.out.printf("%2d threads: %8.1f ms  speedup %5.2fx  %s%n", threads, elapsed,
+                    serial / elapsed, same ? "igual ao serial" : "DIFERENTE DO SERIAL");
+        }
+        Parallel.setParallelism(original);
+    }
+
+    // Seis mapas de borda (RGB + cinza) em filtros separados contra uma varredura fundida
+    private static void benchmarkFusedEdges(BufferedImage image) {
+        System.out.println("== Bordas: filtros separados x varredura fundida ==");
+        double pixels = (double) image.getWidth() * image.getHeight();
+        int maps = FilterEngine.SOBEL | FilterEngine.LAPLACIAN | FilterEngine.GRADIENT;
+        PixelBuffer[] separate = new PixelBuffer[6];
+        FilterEngine.EdgeMaps[] fused = new FilterEngine.EdgeMaps[1];
+
+        double t0 = time(() -> {
+            PixelBuffer rgb = PixelBuffer.fromImage(image);
+            PixelBuffer gray = FilterEngine.luma(rgb);
+            separate[0] = FilterEngine.sobel(rgb, SOBEL_X, SOBEL_Y, 80);
+            separate[1] = FilterEngine.laplacian(rgb, LAPLACIAN, 80);
+            separate[2] = FilterEngine.gradient(rgb, 80);
+            separate[3] = FilterEngine.sobel(gray, SOBEL_X, SOBEL_Y, 80);
+            separate[4] = FilterEngine.laplacian(gray, LAPLACIAN, 80);
+            separate[5] = FilterEngine.gradient(gray, 80);
+        });
+        double t1 = time(() -> fused[0] = FilterEngine.edges(PixelBuffer.fromImage(image),
+                SOBEL_X, SOBEL_Y, LAPLACIAN, 80, maps, true, true));
+        FilterEngine.EdgeMaps f = fused[0];
+        boolean same = samePixels(separate[0], f.sobel) && samePixels(separate[1], f.laplacian)
+                && samePixels(separate[2], f.gradient) && samePixels(separate[3], f.graySobel)
+                && samePixels(separate[4], f.grayLaplacian) && samePixels(separate[5], f.grayGradient);
+        report("6 mapas de borda", pixels, t0, t1, same);
+    }
+
+    // FFT 2D recursiva original contra a iterativa com tabelas, de 512² até maxSize²
+    private static void benchmarkFFT(int maxSize) {
+        System.out.println("== FFT 2D: recursiva x iterativa ==");
+        for (int n = 512; n <= maxSize; n *= 2) {
+            int size = n;
+            double[] input = randomComplex(size, size, size);
+            double[] legacy = input.clone();
+            double[] iterative = input.clone();
+            int runs = size >= 4096 ? 1 : 3;
+
+            double t0 = time(() -> legacyFFT2D(copyInto(input, legacy), size, size), runs);
+            Fourier.DoubleFFT_2D fft = new Fourier.DoubleFFT_2D(size, size);
+            double t1 = time(() -> fft.complexForward(copyInto(input, iterative)), runs);
+
+            // Ida e volta (direta + inversa) deve devolver a entrada
+            fft.complexInverse(copyInto(iterative, legacy), true);
+            System.out.printf("%5d²: recursiva %9.1f ms  iterativa %8.1f ms  %5.1fx  erro ida e volta %.1e%n",
+                    size, t0, t1, t0 / t1, maxRelativeError(input, legacy));
+        }
+
+        // Conferência contra a DFT direta num vetor pequeno
+        int n = 64;
+        double[] x = randomComplex(1, n, 1);
+        double[] dft = naiveDFT(x, n);
+        double[] iterative = x.clone();
+        FFT1D.create(n).transform(iterative, false);
+        double[] legacy = x.clone();
+        legacyFFT1D(legacy, n);
+        System.out.printf("DFT direta (n = %d): erro máx. iterativa %.1e, recursiva %.1e%n", n,
+                maxRelativeError(dft, iterative), maxRelativeError(dft, legacy));
+    }
+
+    // Tamanhos que não são potência de 2: precisão contra a DFT direta e custo da
+    // resolução nativa contra o preenchimento até a próxima potência de 2
+    private static void benchmarkArbitrarySize() {
+        System.out.println("== FFT de tamanho arbitrário ==");
+        for (int n : new int[] {225, 1080, 1920, 997, 2 * 1031}) {
+            double[] x = randomComplex(1, n, n);
+            double[] dft = naiveDFT(x, n);
+            FFT1D fft = FFT1D.create(n);
+            double[] result = x.clone();
+            fft.transform(result, false);
+            System.out.printf("n = %4d (%s): erro máx. relativo contra a DFT %.1e%n", n,
+                    fft.getClass().getSimpleName(),
+                    maxRelativeError(dft, result));
+        }
+
+        double[] hd = randomComplex(1080, 1920, 3);
+        double[] padded = randomComplex(2048, 2048, 3);
+        Fourier.DoubleFFT_2D nativeFFT = new Fourier.DoubleFFT_2D(1080, 1920);
+        Fourier.DoubleFFT_2D paddedFFT = new Fourier.DoubleFFT_2D(2048, 2048);
+        double[] work = hd.clone();
+        double t0 = time(() -> nativeFFT.complexForward(copyInto(hd, work)));
+        double[] paddedWork = padded.clone();
+        double t1 = time(() -> paddedFFT.complexForward(copyInto(padded, paddedWork)));
+        nativeFFT.complexInverse(work, true);
+        System.out.printf("1920x1080 nativa %.1f ms (%.0f MB)  preenchida 2048x2048 %.1f ms (%.0f MB)"
+                + "  erro ida e volta %.1e%n", t0, 1920 * 1080 * 16 / 1e6, t1, 2048 * 2048 * 16 / 1e6,
+                maxRelativeError(hd, work));
+    }
+
+    // Ida e volta complexa (matriz height x 2*width) contra a real com meio espectro
+    private static void benchmarkRealFFT() {
+        System.out.println("== FFT complexa x FFT real (meio espectro) ==");
+        for (int[] size : new int[][] {{1080, 1920}, {2048, 2048}}) {
+            int height = size[0];
+            int width = size[1];
+            Fourier.DoubleFFT_2D fft = new Fourier.DoubleFFT_2D(height, width);
+            int columns = fft.halfSpectrumColumns();
+            int stride = 2 * columns;
+            double[] pixels = randomComplex(height, width, 5);
+            double[] complex = pixels.clone();
+            double[] real = new double[height * stride];
+
+            double t0 = time(() -> {
+                copyInto(pixels, complex);
+                fft.complexForward(complex);
+                fft.complexInverse(complex, true);
+            });
+            double t1 = time(() -> {
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        real[y*stride + x] = pixels[2 * (y*width + x)];
+                    }
+                }
+                fft.realForward(real);
+                fft.realInverse(real, true);
+            });
+            double error = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    error = Math.max(error, Math.abs(real[y*stride + x] - complex[2 * (y*width + x)]));
+                }
+            }
+            System.out.printf("%dx%d: complexa %7.1f ms (%4.0f MB)  real %7.1f ms (%4.0f MB)  %4.1fx  dif. máx. %.1e%n",
+                    width, height, t0, height * 2.0 * width * 8 / 1e6, t1, height * 2.0 * columns * 8 / 1e6,
+                    t0 / t1, error);
+        }
+    }
+
+    // Lote de quadros da mesma resolução criando um DoubleFFT_2D por quadro, com o cache de
+    // planos valendo e com o cache esvaziado a cada quadro. As duas variantes se alternam em
+    // várias rodadas (depois de uma de aquecimento) e sai a mediana, porque a diferença é
+    // pequena perto da FFT em si; à parte, o custo de só montar o DoubleFFT_2D, que é o que o
+    // cache economiza
+    private static void benchmarkPlanCache() {
+        System.out.println("== Cache de planos FFT ==");
+        int frames = 200;
+        int rounds = 5;
+        int height = 270;
+        int width = 480;
+        double[] frame = randomComplex(height, width, 9);
+        double[] work = frame.clone();
+
+        Runnable cleared = () -> {
+            for (int i = 0; i < frames; i++) {
+                FFTPlanCache.clear();
+                new Fourier.DoubleFFT_2D(height, width).complexForward(copyInto(frame, work));
+            }
+        };
+        Runnable cached = () -> {
+            for (int i = 0; i < frames; i++) {
+                new Fourier.DoubleFFT_2D(height, width).complexForward(copyInto(frame, work));
+            }
+        };
+        Runnable buildCleared = () -> {
+            for (int i = 0; i < frames; i++) {
+                FFTPlanCache.clear();
+                new Fourier.DoubleFFT_2D(height, width);
+            }
+        };
+        Runnable buildCached = () -> {
+            for (int i = 0; i < frames; i++) {
+                new Fourier.DoubleFFT_2D(height, width);
+            }
+        };
+
+        double[] t0 = new double[rounds];
+        double[] t1 = new double[rounds];
+        double[] b0 = new double[rounds];
+        double[] b1 = new double[rounds];
+        cleared.run();
+        cached.run();
+        for (int r = 0; r < rounds; r++) {
+            t0[r] = elapsed(cleared);
+            t1[r] = elapsed(cached);
+            b0[r] = elapsed(buildCleared);
+            b1[r] = elapsed(buildCached);
+        }
+        FFTPlanCache.clear();
+        FFTPlanCache.resetStats();
+        cached.run();
+        double plain = median(t0);
+        double reused = median(t1);
+        System.out.printf("%d quadros %dx%d (mediana de %d): sem cache %.1f ms  com cache %.1f ms  %.2fx%n",
+                frames, width, height, rounds, plain, reused, plain / reused);
+        System.out.printf("só montar o DoubleFFT_2D: sem cache %.3f ms/quadro  com cache %.4f ms/quadro%n",
+                median(b0) / frames, median(b1) / frames);
+        System.out.println(FFTPlanCache.stats());
+    }
+
+    // Uma execução só, sem aquecimento, em ms
+    private static double elapsed(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    // Passada das colunas coluna a coluna (acesso com passo de uma linha inteira) contra a
+    // passada em blocos de FFTPlan.COLUMN_BATCH colunas, com a passada das linhas como base:
+    // em tempo por elemento, colunas em bloco ficam no mesmo patamar das linhas
+    private static void benchmarkColumnPass() {
+        System.out.println("== FFT 2D: passada das colunas ==");
+        for (int size : new int[] {1024, 2048, 4096}) {
+            FFTPlan plan = FFTPlanCache.get(size, size, FFTPlan.Direction.FORWARD, FFTPlan.Precision.DOUBLE);
+            double[] input = randomComplex(size, size, size);
+            double[] single = input.clone();
+            double[] blocked = input.clone();
+            double[] scratch = FFTPlanCache.scratch(plan.scratchSize());
+            int stride = 2 * size;
+            int runs = size >= 4096 ? 1 : 3;
+
+            double rows = time(() -> {
+                for (int y = 0; y < size; y++) {
+                    plan.rowTransform().transform(single, y * stride, scratch, false);
+                }
+            }, runs);
+            double t0 = time(() -> plan.columnPass(copyInto(input, single), stride, 0, size, false, scratch, 1), runs);
+            double t1 = time(() -> plan.columnPass(copyInto(input, blocked), stride, 0, size, false,
+                    scratch, FFTPlan.COLUMN_BATCH), runs);
+            double elements = (double) size * size / 1e6;
+            System.out.printf("%5d²: linhas %6.1f ns/elem  colunas uma a uma %6.1f ns/elem  em bloco %6.1f ns/elem"
+                    + "  %4.1fx  %s%n", size, rows / elements, t0 / elements, t1 / elements, t0 / t1,
+                    Arrays.equals(single, blocked) ? "idênticos" : "DIFERENTES");
+        }
+    }
+
+    // Ida e volta da FFT real 2D com 1, 2, 4... threads, conferindo bit a bit contra a serial
+    private static void benchmarkFFTThreads(int width, int height) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("== FFT 2D: threads (" + cores + " núcleos disponíveis) ==");
+        Fourier.DoubleFFT_2D fft = new Fourier.DoubleFFT_2D(height, width);
+        int stride = 2 * fft.halfSpectrumColumns();
+        double[] pixels = new double[height * stride];
+        Random random = new Random(11);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y*stride + x] = random.nextInt(256);
+            }
+        }
+        int original = Parallel.getParallelism();
+
+        Parallel.setParallelism(1);
+        double[] serial = pixels.clone();
+        fft.realForward(serial);
+        double[] serialSpectrum = serial.clone();
+        fft.realInverse(serial, true);
+        double base = 0;
+
+        double[] work = new double[pixels.length];
+        for (int threads = 1; threads <= Math.max(4, cores); threads *= 2) {
+            Parallel.setParallelism(threads);
+            double[] spectrum = new double[pixels.length];
+            double elapsed = time(() -> {
+                fft.realForward(copyInto(pixels, work));
+                System.arraycopy(work, 0, spectrum, 0, work.length);
+                fft.realInverse(work, true);
+            });
+            if (threads == 1) {
+                base = elapsed;
+            }
+            boolean same = Arrays.equals(serialSpectrum, spectrum) && Arrays.equals(serial, work);
+            System.out.printf("%dx%d, %2d threads: %8.1f ms  speedup %5.2fx  %s%n", width, height, threads,
+                    elapsed, base / elapsed, same ? "idêntico ao serial" : "DIFERENTE");
+        }
+        Parallel.setParallelism(original);
+    }
+
+    // Filtro passa-alta do Fourier (FFT real, máscara, inversa) em double e em float:
+    // tempo, tamanho do buffer, erro do float relativo ao maior valor e pixels da imagem
+    // final que mudam
+    private static void benchmarkFloatFFT() {
+        System.out.println("== FFT 2D: double x float ==");
+        for (int[] size : new int[][] {{1080, 1920}, {2048, 2048}, {4096, 4096}}) {
+            int height = size[0];
+            int width = size[1];
+            Fourier.DoubleFFT_2D doubleFFT = new Fourier.DoubleFFT_2D(height, width);
+            Fourier.FloatFFT_2D floatFFT = new Fourier.FloatFFT_2D(height, width);
+            int stride = 2 * doubleFFT.halfSpectrumColumns();
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            Random random = new Random(height);
+            double[] pixels = new double[height * stride];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int value = random.nextInt(256);
+                    pixels[y*stride + x] = value;
+                    image.getRaster().setSample(x, y, 0, value);
+                }
+            }
+            double[] doubleData = new double[pixels.length];
+            float[] floatData = new float[pixels.length];
+            int runs = height >= 4096 ? 1 : 3;
+
+            double t0 = time(() -> {
+                copyInto(pixels, doubleData);
+                doubleFFT.realForward(doubleData);
+                FrequencyFilters.apply(doubleData, height, width, FrequencyFilters.highPass(height, width));
+                doubleFFT.realInverse(doubleData, true);
+            }, runs);
+            double t1 = time(() -> {
+                for (int i = 0; i < pixels.length; i++) {
+                    floatData[i] = (float) pixels[i];
+                }
+                floatFFT.realForward(floatData);
+                FrequencyFilters.apply(floatData, height, width, FrequencyFilters.highPass(height, width));
+                floatFFT.realInverse(floatData, true);
+            }, runs);
+            double filterError = maxRelativeError(doubleData, floatData, height, width, stride);
+
+            copyInto(pixels, doubleData);
+            doubleFFT.realForward(doubleData);
+            for (int i = 0; i < pixels.length; i++) {
+                floatData[i] = (float) pixels[i];
+            }
+            floatFFT.realForward(floatData);
+            double spectrumError = maxRelativeError(doubleData, floatData, height, stride, stride);
+            floatFFT.realInverse(floatData, true);
+            double roundTripError = maxRelativeError(pixels, floatData, height, width, stride);
+
+            BufferedImage doubleImage = Fourier.processDouble(image)[1];
+            BufferedImage floatImage = Fourier.processFloat(image)[1];
+            int changed = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (doubleImage.getRGB(x, y) != floatImage.getRGB(x, y)) {
+                        changed++;
+                    }
+                }
+            }
+            System.out.printf("%dx%d: double %7.1f ms (%4.0f MB)  float %7.1f ms (%4.0f MB)  %4.2fx%n",
+                    width, height, t0, pixels.length * 8 / 1e6, t1, pixels.length * 4 / 1e6, t0 / t1);
+            System.out.printf("    erro relativo: espectro %.1e  ida e volta %.1e  filtro %.1e  pixels diferentes %d%n",
+                    spectrumError, roundTripError, filterError, changed);
+        }
+    }
+
+    // Etapas do Fourier fora da FFT (imagem do espectro, passa-alta, normalização final)
+    // como eram, com pow/sqrt/exp por bin e duas passadas com setRGB, contra a máscara em
+    // cache e as passadas fundidas. Várias imagens seguidas na mesma resolução
+    private static void benchmarkFrequencyStages(int width, int height) {
+        System.out.println("== Fourier: espectro, máscara e normalização ==");
+        Fourier.DoubleFFT_2D fft = new Fourier.DoubleFFT_2D(height, width);
+        int stride = 2 * fft.halfSpectrumColumns();
+        double[] spectrum = new double[height * stride];
+        Random random = new Random(13);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                spectrum[y*stride + x] = random.nextInt(256);
+            }
+        }
+        fft.realForward(spectrum);
+        double[] work = new double[spectrum.length];
+        int jobs = 5;
+
+        BufferedImage[] legacy = new BufferedImage[2];
+        double t0 = time(() -> {
+            for (int i = 0; i < jobs; i++) {
+                copyInto(spectrum, work);
+                legacy[0] = legacySpectrumImage(work, width, height, stride);
+                legacyHighPass(work, width, height, stride);
+                legacy[1] = legacyResultImage(work, width, height, stride);
+            }
+        }, 1);
+
+        FrequencyFilters.clear();
+        FrequencyFilters.resetStats();
+        BufferedImage[] fused = new BufferedImage[2];
+        double t1 = time(() -> {
+            for (int i = 0; i < jobs; i++) {
+                copyInto(spectrum, work);
+                fused[0] = Fourier.spectrumImage(work, width, height, stride);
+                FrequencyFilters.apply(work, height, width, FrequencyFilters.highPass(height, width));
+                fused[1] = Fourier.resultImage(work, width, height, stride);
+            }
+        }, 1);
+        // time() faz um aquecimento antes de medir, então aqui a medida é direta
+        FrequencyFilters.clear();
+        long start = System.nanoTime();
+        FrequencyFilters.highPass(height, width);
+        double build = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        FrequencyFilters.highPass(height, width);
+        double cached = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("%d imagens %dx%d: antes %8.1f ms  depois %8.1f ms  %5.2fx  %s%n", jobs, width, height,
+                t0, t1, t0 / t1, sameImage(legacy[0], fused[0]) && sameImage(legacy[1], fused[1])
+                        ? "mesmas imagens" : "IMAGENS DIFERENTES");
+        System.out.printf("máscara passa-alta: calcular %.1f ms, do cache %.3f ms; %s%n", build, cached,
+                FrequencyFilters.stats());
+    }
+
+    // Imagem do espectro original do Fourier.main: log(1 + |X|) calculado duas vezes
+    private static BufferedImage legacySpectrumImage(double[] data, int width, int height, int stride) {
+        int columns = width / 2 + 1;
+        BufferedImage spectrumImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        double maxSpectrum = Double.MIN_VALUE;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < columns; x++) {
+                double re = data[y*stride + 2*x];
+                double im = data[y*stride + 2*x+1];
+                maxSpectrum = Math.max(maxSpectrum, Math.log(1 + Math.sqrt(re*re + im*im)));
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int shiftedY = (y + height/2) % height;
+                int shiftedX = (x + width/2) % width;
+                int sourceY = x < columns ? y : (height - y) % height;
+                int sourceX = x < columns ? x : width - x;
+                double re = data[sourceY*stride + 2*sourceX];
+                double im = data[sourceY*stride + 2*sourceX+1];
+                double magnitude = Math.log(1 + Math.sqrt(re*re + im*im));
+                int value = (int)(magnitude * 255 / maxSpectrum);
+                value = Math.min(255, Math.max(0, value));
+                spectrumImage.setRGB(shiftedX, shiftedY, (value << 16) | (value << 8) | value);
+            }
+        }
+        return spectrumImage;
+    }
+
+    // Passa-alta original do Fourier.main, recalculado a cada bin
+    private static void legacyHighPass(double[] data, int width, int height, int stride) {
+        int columns = width / 2 + 1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < columns; x++) {
+                double distanceFromCenter = Math.sqrt(Math.pow((y - height/2.0), 2) + Math.pow((x - width/2.0), 2));
+                double radius = Math.sqrt(Math.pow(height/2.0, 2) + Math.pow(width/2.0, 2));
+                double highPassFactor = 1.0 - Math.exp(-distanceFromCenter * 5.0 / radius);
+                if (distanceFromCenter > radius * 0.1) {
+                    highPassFactor *= 2.0;
+                }
+                data[y*stride + 2*x] *= highPassFactor;
+                data[y*stride + 2*x+1] *= highPassFactor;
+            }
+        }
+    }
+
+    // Normalização final original do Fourier.main (duas passadas com Math.abs e setRGB)
+    private static BufferedImage legacyResultImage(double[] data, int width, int height, int stride) {
+        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        double maxVal = Double.MIN_VALUE;
+        double minVal = Double.MAX_VALUE;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double magnitude = Math.abs(data[y*stride + x]);
+                maxVal = Math.max(maxVal, magnitude);
+                minVal = Math.min(minVal, magnitude);
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double magnitude = Math.abs(data[y*stride + x]);
+                double normalized = (magnitude - minVal) / (maxVal - minVal);
+                int value = (int)(normalized * 255);
+                value = Math.min(255, Math.max(0, value));
+                resultImage.setRGB(x, y, (value << 16) | (value << 8) | value);
+            }
+        }
+        return resultImage;
+    }
+
+    // Otzu original (cinza com setRGB, histograma e limiar lendo a imagem duas vezes, tudo
+    // coluna a coluna) contra a passada fundida por linhas com a saída em bits
+    private static void benchmarkOtsu(BufferedImage image) {
+        System.out.println("== Otsu: cinza + histograma + limiar ==");
+        double pixels = (double) image.getWidth() * image.getHeight();
+        BufferedImage[] legacy = new BufferedImage[2];
+        Otzu.Binarization[] fused = new Otzu.Binarization[1];
+
+        double t0 = time(() -> {
+            legacy[0] = legacyGrayscale(image);
+            legacy[1] = legacyBinary(legacy[0]);
+        });
+        double t1 = time(() -> fused[0] = Otzu.binarize(image));
+        report("Binária", pixels, t0, t1, sameImage(legacy[1], fused[0].binaryImage()));
+        double t2 = time(() -> Otzu.binarize(image).grayImage());
+        report("Binária + cinza", pixels, t0, t2, sameImage(legacy[0], fused[0].grayImage()));
+
+        // Adaptativo: custo comparado ao global e acerto numa página com iluminação desigual
+        // (traços escuros sobre papel claro, com a luz caindo de um canto ao outro)
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        boolean[] ink = new boolean[width * height];
+        Random random = new Random(3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean stroke = (x / 6) % 5 == 0 && (y / 40) % 2 == 0 || (y / 6) % 7 == 0 && (x / 50) % 3 == 1;
+                double light = 0.25 + 0.75 * (x + y) / (double) (width + height);
+                int value = (int) ((stroke ? 60 : 230) * light) + random.nextInt(9) - 4;
+                page.getRaster().setSample(x, y, 0, Math.min(255, Math.max(0, value)));
+                ink[y * width + x] = stroke;
+            }
+        }
+        double global = time(() -> Otzu.binarize(page));
+        System.out.printf("Página %dx%d, global: %.1f ms, %.1f%% dos pixels errados%n", width, height, global,
+                misclassified(Otzu.binarize(page).binaryImage(), ink));
+        for (int tile : new int[] {32, 64, 128}) {
+            double adaptive = time(() -> Otzu.binarizeAdaptive(page, tile));
+            System.out.printf("Página %dx%d, adaptativo (bloco %d): %.1f ms (%.2fx o global), %.1f%% dos pixels errados%n",
+                    width, height, tile, adaptive, adaptive / global,
+                    misclassified(Otzu.binarizeAdaptive(page, tile).binaryImage(), ink));
+        }
+    }
+
+    // Otsu multinível: programação dinâmica contra a busca exaustiva (com a mesma tabela H)
+    // e o tempo da segmentação completa
+    private static void benchmarkMultiLevel(BufferedImage image) {
+        System.out.println("== Otsu multinível ==");
+        // Histograma do cinza lido de volta, o mesmo que o Otzu usa
+        Otzu.Binarization global = Otzu.binarize(image);
+        BufferedImage gray = global.grayImage();
+        int[] histogram = new int[256];
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                histogram[gray.getRGB(x, y) & 0xff]++;
+            }
+        }
+        double[][] between = Otzu.classVariances(histogram);
+        for (int classes = 2; classes <= 5; classes++) {
+            int k = classes;
+            int[][] dp = new int[1][];
+            double t0 = time(() -> dp[0] = Otzu.multiLevelThresholds(histogram, k));
+            String check;
+            if (classes <= 4) {
+                int[][] exhaustive = new int[1][];
+                double t1 = time(() -> exhaustive[0] = exhaustiveThresholds(between, k - 1), 1);
+                double a = score(between, dp[0]);
+                double b = score(between, exhaustive[0]);
+                check = String.format("exaustiva %.1f ms %s", t1,
+                        Math.abs(a - b) <= 1e-12 * b ? "mesma variância" : "VARIÂNCIA DIFERENTE");
+            } else {
+                check = "exaustiva omitida (C(255,4) combinações)";
+            }
+            double total = time(() -> Otzu.multiLevel(image, k).posterizedImage());
+            System.out.printf("%d classes: limiares %-18s DP %6.2f ms  %s  segmentação %dx%d %.1f ms%n", classes,
+                    Arrays.toString(dp[0]), t0, check, image.getWidth(), image.getHeight(), total);
+        }
+        System.out.println("Limiar binário (Otsu em float): " + global.getThreshold());
+    }
+
+    private static double score(double[][] between, int[] thresholds) {
+        double total = 0;
+        int start = 0;
+        for (int t : thresholds) {
+            total += between[start][t];
+            start = t + 1;
+        }
+        return total + between[start][255];
+    }
+
+    // Todas as combinações crescentes de count limiares
+    private static int[] exhaustiveThresholds(double[][] between, int count) {
+        int[] current = new int[count];
+        int[] best = new int[count];
+        double[] bestScore = {Double.NEGATIVE_INFINITY};
+        exhaustive(between, current, 0, 0, best, bestScore);
+        return best;
+    }
+
+    private static void exhaustive(double[][] between, int[] current, int index, int start, int[] best,
+            double[] bestScore) {
+        if (index == current.length) {
+            double score = score(between, current);
+            if (score > bestScore[0]) {
+                bestScore[0] = score;
+                System.arraycopy(current, 0, best, 0, current.length);
+            }
+            return;
+        }
+        for (int t = start; t < 255 - (current.length - 1 - index); t++) {
+            current[index] = t;
+            exhaustive(between, current, index + 1, t + 1, best, bestScore);
+        }
+    }
+
+    // Porcentagem de pixels em que a binária discorda da tinta (tinta = preto)
+    private static double misclassified(BufferedImage binary, boolean[] ink) {
+        int width = binary.getWidth();
+        int wrong = 0;
+        for (int i = 0; i < ink.length; i++) {
+            boolean black = (binary.getRGB(i % width, i / width) & 0xff) == 0;
+            if (black != ink[i]) {
+                wrong++;
+            }
+        }
+        return 100.0 * wrong / ink.length;
+    }
+
+    // Otzu.convertToGrayscale original
+    private static BufferedImage legacyGrayscale(BufferedImage original) {
+        int width = original.getWidth();
+        int height = original.getHeight();
+        BufferedImage grayscale = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                int rgb = original.getRGB(i, j);
+                int gray = (int) (0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff));
+                grayscale.setRGB(i, j, (gray << 16) | (gray << 8) | gray);
+            }
+        }
+        return grayscale;
+    }
+
+    // Otzu.convertToBinary original (o limiar é o mesmo Otzu.otsuThreshold)
+    private static BufferedImage legacyBinary(BufferedImage grayscale) {
+        int width = grayscale.getWidth();
+        int height = grayscale.getHeight();
+        int[] histogram = new int[256];
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                histogram[grayscale.getRGB(i, j) & 0xff]++;
+            }
+        }
+        int threshold = Otzu.otsuThreshold(histogram);
+        BufferedImage binary = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                int gray = grayscale.getRGB(i, j) & 0xff;
+                binary.setRGB(i, j, gray > threshold ? 0xFFFFFF : 0);
+            }
+        }
+        return binary;
+    }
+
+    static double[] naiveDFT(double[] x, int n) {
+        double[] result = new double[2 * n];
+        for (int k = 0; k < n; k++) {
+            for (int j = 0; j < n; j++) {
+                double angle = -2 * Math.PI * ((long) j * k % n) / n;
+                double c = Math.cos(angle);
+                double s = Math.sin(angle);
+                result[2*k] += x[2*j] * c - x[2*j+1] * s;
+                result[2*k+1] += x[2*j] * s + x[2*j+1] * c;
+            }
+        }
+        return result;
+    }
+
+    // FFT original do Fourier.DoubleFFT_2D (recursiva, aloca a cada nível), mantida como
+    // referência; trabalha sobre double[][], então converte o buffer contínuo na ida e na volta
+    private static void legacyFFT2D(double[] flat, int height, int width) {
+        double[][] data = new double[height][2 * width];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(flat, y * 2 * width, data[y], 0, 2 * width);
+            legacyFFT1D(data[y], width);
+        }
+        double[] temp = new double[2 * height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                temp[2*y] = data[y][2*x];
+                temp[2*y+1] = data[y][2*x+1];
+            }
+            legacyFFT1D(temp, height);
+            for (int y = 0; y < height; y++) {
+                data[y][2*x] = temp[2*y];
+                data[y][2*x+1] = temp[2*y+1];
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(data[y], 0, flat, y * 2 * width, 2 * width);
+        }
+    }
+
+    private static void legacyFFT1D(double[] data, int n) {
+        if (n <= 1) return;
+        double[] even = new double[n];
+        double[] odd = new double[n];
+        for (int i = 0; i < n/2; i++) {
+            even[2*i] = data[2*i];
+            even[2*i+1] = data[2*i+1];
+            odd[2*i] = data[2*(i + n/2)];
+            odd[2*i+1] = data[2*(i + n/2)+1];
+        }
+        legacyFFT1D(even, n/2);
+        legacyFFT1D(odd, n/2);
+        double angle = -2 * Math.PI / n;
+        double wReal = 1;
+        double wImag = 0;
+        double wRealStep = Math.cos(angle);
+        double wImagStep = Math.sin(angle);
+        for (int i = 0; i < n/2; i++) {
+            double oddReal = wReal * odd[2*i] - wImag * odd[2*i+1];
+            double oddImag = wReal * odd[2*i+1] + wImag * odd[2*i];
+            data[2*i] = even[2*i] + oddReal;
+            data[2*i+1] = even[2*i+1] + oddImag;
+            data[2*(i + n/2)] = even[2*i] - oddReal;
+            data[2*(i + n/2)+1] = even[2*i+1] - oddImag;
+            double temp = wReal * wRealStep - wImag * wImagStep;
+            wImag = wReal * wImagStep + wImag * wRealStep;
+            wReal = temp;
+        }
+    }
+
+    // Buffer complexo contínuo (height linhas de width complexos) com parte real de 0 a 255
+    static double[] randomComplex(int height, int width, long seed) {
+        Random random = new Random(seed);
+        double[] data = new double[height * 2 * width];
+        for (int i = 0; i < data.length; i += 2) {
+            data[i] = random.nextInt(256);
+        }
+        return data;
+    }
+
+    static double[] copyInto(double[] source, double[] target) {
+        System.arraycopy(source, 0, target, 0, source.length);
+        return target;
+    }
+
+    // Como a versão double, olhando só as length primeiras posições de cada linha
+    static double maxRelativeError(double[] reference, float[] other, int rows, int length, int stride) {
+        double maxDiff = 0;
+        double maxValue = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int i = y * stride; i < y * stride + length; i++) {
+                maxDiff = Math.max(maxDiff, Math.abs(reference[i] - other[i]));
+                maxValue = Math.max(maxValue, Math.abs(reference[i]));
+            }
+        }
+        return maxDiff / maxValue;
+    }
+
+    // Maior diferença entre os dois buffers, relativa ao maior valor absoluto da referência
+    static double maxRelativeError(double[] reference, double[] other) {
+        double maxDiff = 0;
+        double maxValue = 0;
+        for (int i = 0; i < reference.length; i++) {
+            maxDiff = Math.max(maxDiff, Math.abs(reference[i] - other[i]));
+            maxValue = Math.max(maxValue, Math.abs(reference[i]));
+        }
+        return maxDiff / maxValue;
+    }
+
+    // Implementação original do PassaBaixa.applyFilter, mantida como referência
+    private static BufferedImage legacyConvolve(BufferedImage input, int[][] filter, int denominator) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        BufferedImage output = new BufferedImage(width, height, input.getType());
+        int filterSize = filter.length;
+        int margin = filterSize / 2;
+
+        for (int y = margin; y < height - margin; y++) {
+            for (int x = margin; x < width - margin; x++) {
+                int r = 0, g = 0, b = 0;
+                for (int fy = 0; fy < filterSize; fy++) {
+                    for (int fx = 0; fx < filterSize; fx++) {
+                        int rgb = input.getRGB(x + fx - margin, y + fy - margin);
+                        int coeff = filter[fy][fx];
+                        r += ((rgb >> 16) & 0xff) * coeff;
+                        g += ((rgb >> 8) & 0xff) * coeff;
+                        b += (rgb & 0xff) * coeff;
+                    }
+                }
+                r = Math.min(255, Math.max(0, r / denominator));
+                g = Math.min(255, Math.max(0, g / denominator));
+                b = Math.min(255, Math.max(0, b / denominator));
+                output.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return output;
+    }
+
+    // Implementação original do PassaAlta.applySobelFilter, mantida como referência
+    private static BufferedImage legacySobel(BufferedImage input, int tolerance) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        BufferedImage output = new BufferedImage(width, height, input.getType());
+        int channels = input.getType() == BufferedImage.TYPE_BYTE_GRAY ? 1 : 3;
+
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                double vh = 0.0;
+                double vw = 0.0;
+                for (int k = 0; k < channels; k++) {
+                    for (int s = 0; s < 3; s++) {
+                        for (int t = 0; t < 3; t++) {
+                            int value = (input.getRGB(x + t - 1, y + s - 1) >> (k * 8)) & 0xff;
+                            vh += SOBEL_Y[s][t] * value;
+                            vw += SOBEL_X[s][t] * value;
+                        }
+                    }
+                }
+                int value = Math.sqrt(vh * vh + vw * vw) > tolerance ? 0 : 255;
+                output.setRGB(x, y, (value << 16) | (value << 8) | value);
+            }
+        }
+        return output;
+    }
+
+    // Imagem com gradientes suaves e ruído, parecida com uma foto
+    static BufferedImage syntheticImage(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(seed);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(40)) & 0xff;
+                int g = (y * 255 / height + random.nextInt(40)) & 0xff;
+                int b = ((x + y) % 256 + random.nextInt(40)) & 0xff;
+                row[x] = (r << 16) | (g << 8) | b;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    static boolean sameImage(BufferedImage a, BufferedImage b) {
+        if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+            return false;
+        }
+        int width = a.getWidth();
+        int[] rowA = new int[width];
+        int[] rowB = new int[width];
+        for (int y = 0; y < a.getHeight(); y++) {
+            a.getRGB(0, y, width, 1, rowA, 0, width);
+            b.getRGB(0, y, width, 1, rowB, 0, width);
+            for (int x = 0; x < width; x++) {
+                if ((rowA[x] & 0xffffff) != (rowB[x] & 0xffffff)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    static boolean samePixels(PixelBuffer a, PixelBuffer b) {
+        if (a.getChannels() != b.getChannels()) {
+            return false;
+        }
+        for (int c = 0; c < a.getChannels(); c++) {
+            if (!Arrays.equals(a.plane(c), b.plane(c))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Melhor tempo (ms) de algumas execuções, depois de um aquecimento
+    static double time(Runnable task) {
+        return time(task, 3);
+    }
+
+    static double time(Runnable task, int runs) {
+        task.run();
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        return best;
+    }
+
+    static void report(String name, double pixels, double before, double after, boolean same) {
+        System.out.printf("%-22s antes %8.1f ms (%6.1f Mpx/s)  depois %8.1f ms (%6.1f Mpx/s)  %5.1fx  %s%n",
+                name, before, pixels / before / 1e3, after, pixels / after / 1e3, before / after,
+                same ? "saída idêntica" : "SAÍDA DIFERENTE");
+    }
+}
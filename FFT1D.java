@@ -0,0 +1,550 @@
+// FFT 1D de qualquer tamanho, sobre n números complexos intercalados (re, im).
+// create(n) escolhe a implementação pelo tamanho:
+//  - potência de 2: radix-2 iterativa in-place;
+//  - só fatores 2, 3, 5 e 7: Cooley-Tukey de base mista;
+//  - outros (fatores primos grandes): Bluestein, que reduz a uma convolução de
+//    tamanho potência de 2.
+// As tabelas são calculadas no construtor e não mudam depois; a área de trabalho
+// (scratch) é passada por quem chama, então o mesmo objeto pode ser usado por várias
+// threads ao mesmo tempo, cada uma com seu scratch.
+public abstract class FFT1D {
+    protected final int n;
+
+    protected FFT1D(int n) {
+        this.n = n;
+    }
+
+    public static FFT1D create(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Tamanho de FFT inválido: " + n);
+        }
+        if (Radix2.isPowerOfTwo(n)) {
+            return new Radix2(n);
+        }
+        if (MixedRadix.isSmooth(n)) {
+            return new MixedRadix(n);
+        }
+        return new Bluestein(n);
+    }
+
+    public int size() {
+        return n;
+    }
+
+    // Tamanho (em doubles) do scratch exigido por transform
+    public abstract int scratchSize();
+
+    // Transforma in-place os n complexos que começam em data[offset].
+    // Direta usa e^(-2πi jk/n), inversa e^(+2πi jk/n), sem normalização.
+    public abstract void transform(double[] data, int offset, double[] scratch, boolean inverse);
+
+    public void transform(double[] data, boolean inverse) {
+        transform(data, 0, new double[scratchSize()], inverse);
+    }
+
+    // Transformada de n valores reais; guarda só a metade não redundante do espectro
+    public static Real createReal(int n) {
+        return new Real(n);
+    }
+
+    // FFT de entrada real. O espectro de um sinal real é hermitiano (X[n-k] = conj(X[k])),
+    // então bastam os bins 0..n/2: n/2 + 1 complexos, ou seja, spectrumLength() doubles.
+    // Para n par os n reais são vistos como n/2 complexos (pares na parte real, ímpares na
+    // imaginária) e transformados com uma FFT complexa de metade do tamanho; para n ímpar
+    // é feita a FFT complexa completa. Tudo acontece in-place no mesmo array.
+    public static final class Real {
+        private final int n;
+        private final FFT1D complex;
+        private final double[] cos;
+        private final double[] sin;
+
+        Real(int n) {
+            this.n = n;
+            if (n % 2 == 0) {
+                int half = n / 2;
+                complex = FFT1D.create(half);
+                cos = new double[half / 2 + 1];
+                sin = new double[half / 2 + 1];
+                for (int k = 0; k <= half / 2; k++) {
+                    double angle = 2 * Math.PI * k / n;
+                    cos[k] = Math.cos(angle);
+                    sin[k] = Math.sin(angle);
+                }
+            } else {
+                complex = FFT1D.create(n);
+                cos = null;
+                sin = null;
+            }
+        }
+
+        public int size() {
+            return n;
+        }
+
+        // Doubles ocupados pelo meio espectro (n/2 + 1 complexos)
+        public int spectrumLength() {
+            return 2 * (n / 2 + 1);
+        }
+
+        public int scratchSize() {
+            return n % 2 == 0 ? complex.scratchSize() : 2 * n + complex.scratchSize();
+        }
+
+        // data[offset..offset+n) reais -> data[offset..offset+spectrumLength()) meio espectro
+        public void forward(double[] data, int offset, double[] scratch) {
+            if (n % 2 != 0) {
+                // O complexo fica depois da área de trabalho da FFT, no mesmo scratch
+                int work = complex.scratchSize();
+                for (int j = 0; j < n; j++) {
+                    scratch[work + 2*j] = data[offset + j];
+                    scratch[work + 2*j + 1] = 0;
+                }
+                complex.transform(scratch, work, scratch, false);
+                System.arraycopy(scratch, work, data, offset, spectrumLength());
+                return;
+            }
+
+            int half = n / 2;
+            complex.transform(data, offset, scratch, false);
+
+            // Z = E + iO, com E = FFT dos pares e O = FFT dos ímpares; separa as duas e
+            // combina X_k = E_k + W^k O_k e X_{N-k} = conj(E_k - W^k O_k), com W = e^(-2πi/n)
+            double z0r = data[offset];
+            double z0i = data[offset + 1];
+            data[offset] = z0r + z0i;
+            data[offset + 1] = 0;
+            data[offset + 2 * half] = z0r - z0i;
+            data[offset + 2 * half + 1] = 0;
+
+            for (int k = 1; k <= half / 2; k++) {
+                int a = offset + 2 * k;
+                int b = offset + 2 * (half - k);
+                double er = 0.5 * (data[a] + data[b]);
+                double ei = 0.5 * (data[a + 1] - data[b + 1]);
+                double or = 0.5 * (data[a + 1] + data[b + 1]);
+                double oi = -0.5 * (data[a] - data[b]);
+                double wr = cos[k];
+                double wi = -sin[k];
+                double tr = wr * or - wi * oi;
+                double ti = wr * oi + wi * or;
+                data[a] = er + tr;
+                data[a + 1] = ei + ti;
+                // W^(N-k) = -conj(W^k)
+                data[b] = er - tr;
+                data[b + 1] = -ei + ti;
+            }
+        }
+
+        // Inverso de forward, sem normalização: devolve n * x em data[offset..offset+n)
+        public void inverse(double[] data, int offset, double[] scratch) {
+            if (n % 2 != 0) {
+                // Completa o espectro pela simetria hermitiana e faz a inversa complexa
+                int work = complex.scratchSize();
+                int bins = n / 2 + 1;
+                for (int k = 0; k < bins; k++) {
+                    scratch[work + 2*k] = data[offset + 2*k];
+                    scratch[work + 2*k + 1] = data[offset + 2*k + 1];
+                }
+                for (int k = bins; k < n; k++) {
+                    scratch[work + 2*k] = data[offset + 2 * (n - k)];
+                    scratch[work + 2*k + 1] = -data[offset + 2 * (n - k) + 1];
+                }
+                complex.transform(scratch, work, scratch, true);
+                for (int j = 0; j < n; j++) {
+                    data[offset + j] = scratch[work + 2*j];
+                }
+                return;
+            }
+
+            int half = n / 2;
+            // Reconstrói Z_k = E_k + i O_k (multiplicado por 2, o que dá a escala n no fim)
+            double x0 = data[offset];
+            double xn = data[offset + 2 * half];
+            data[offset] = x0 + xn;
+            data[offset + 1] = x0 - xn;
+
+            for (int k = 1; k <= half / 2; k++) {
+                int a = offset + 2 * k;
+                int b = offset + 2 * (half - k);
+                double er = data[a] + data[b];
+                double ei = data[a + 1] - data[b + 1];
+                double dr = data[a] - data[b];
+                double di = data[a + 1] + data[b + 1];
+                // O_k = (X_k - conj(X_{N-k})) * conj(W^k), conj(W^k) = e^(+2πik/n)
+                double wr = cos[k];
+                double wi = sin[k];
+                double or = dr * wr - di * wi;
+                double oi = dr * wi + di * wr;
+                data[a] = er - oi;
+                data[a + 1] = ei + or;
+                // E_{N-k} = conj(E_k), O_{N-k} = conj(O_k)
+                data[b] = er + oi;
+                data[b + 1] = -ei + or;
+            }
+            complex.transform(data, offset, scratch, true);
+        }
+    }
+
+    // Cooley-Tukey radix-2 iterativo (decimação no tempo) para n potência de 2.
+    // A permutação por bit reverso e os fatores de giro ficam em tabelas, então a
+    // transformada não aloca nada e cada fator vem direto de cos/sin (sem acumular erro).
+    static class Radix2 extends FFT1D {
+        private final int[] bitReverse;
+        private final double[] cos;
+        private final double[] sin;
+
+        Radix2(int n) {
+            super(n);
+            int bits = Integer.numberOfTrailingZeros(n);
+            bitReverse = new int[n];
+            for (int i = 0; i < n; i++) {
+                bitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+            }
+            cos = new double[n / 2];
+            sin = new double[n / 2];
+            for (int k = 0; k < n / 2; k++) {
+                double angle = 2 * Math.PI * k / n;
+                cos[k] = Math.cos(angle);
+                sin[k] = Math.sin(angle);
+            }
+        }
+
+        static boolean isPowerOfTwo(int n) {
+            return n > 0 && (n & (n - 1)) == 0;
+        }
+
+        @Override
+        public int scratchSize() {
+            return 0;
+        }
+
+        @Override
+        public void transform(double[] data, int offset, double[] scratch, boolean inverse) {
+            for (int i = 0; i < n; i++) {
+                int j = bitReverse[i];
+                if (j > i) {
+                    int a = offset + 2*i;
+                    int b = offset + 2*j;
+                    double re = data[a];
+                    double im = data[a+1];
+                    data[a] = data[b];
+                    data[a+1] = data[b+1];
+                    data[b] = re;
+                    data[b+1] = im;
+                }
+            }
+
+            double sign = inverse ? 1 : -1;
+            for (int len = 2; len <= n; len <<= 1) {
+                int half = len >> 1;
+                int step = n / len;
+                for (int start = 0; start < n; start += len) {
+                    for (int k = 0; k < half; k++) {
+                        double wr = cos[k * step];
+                        double wi = sign * sin[k * step];
+                        int a = offset + 2 * (start + k);
+                        int b = a + 2 * half;
+                        double br = data[b] * wr - data[b+1] * wi;
+                        double bi = data[b] * wi + data[b+1] * wr;
+                        data[b] = data[a] - br;
+                        data[b+1] = data[a+1] - bi;
+                        data[a] += br;
+                        data[a+1] += bi;
+                    }
+                }
+            }
+        }
+    }
+
+    // Cooley-Tukey de base mista (fatores 4, 2, 3, 5, 7), decimação no tempo recursiva fora
+    // do lugar: o resultado é montado no scratch e copiado de volta. Bases 2, 3 e 4 têm
+    // borboletas próprias; 5 e 7 usam a borboleta genérica O(p²).
+    static class MixedRadix extends FFT1D {
+        private static final int[] RADICES = {2, 3, 5, 7};
+        private final int[] factors;
+        private final double[] cos;
+        private final double[] sin;
+        private final int maxFactor;
+
+        MixedRadix(int n) {
+            super(n);
+            int count = 0;
+            int[] buffer = new int[32];
+            int rest = n;
+            while (rest % 4 == 0) {
+                buffer[count++] = 4;
+                rest /= 4;
+            }
+            for (int p : RADICES) {
+                while (rest % p == 0) {
+                    buffer[count++] = p;
+                    rest /= p;
+                }
+            }
+            factors = java.util.Arrays.copyOf(buffer, count);
+            int max = 1;
+            for (int p : factors) {
+                max = Math.max(max, p);
+            }
+            maxFactor = max;
+            cos = new double[n];
+            sin = new double[n];
+            for (int k = 0; k < n; k++) {
+                double angle = 2 * Math.PI * k / n;
+                cos[k] = Math.cos(angle);
+                sin[k] = Math.sin(angle);
+            }
+        }
+
+        static boolean isSmooth(int n) {
+            for (int p : RADICES) {
+                while (n % p == 0) {
+                    n /= p;
+                }
+            }
+            return n == 1;
+        }
+
+        @Override
+        public int scratchSize() {
+            return 2 * n + 2 * maxFactor;
+        }
+
+        @Override
+        public void transform(double[] data, int offset, double[] scratch, boolean inverse) {
+            double sign = inverse ? 1 : -1;
+            work(data, offset, 1, scratch, 0, 0, sign, scratch);
+            System.arraycopy(scratch, 0, data, offset, 2 * n);
+        }
+
+        // Calcula em out[outOff..] a DFT das amostras in[inOff], in[inOff + stride], ...
+        // (tamanho n / produto dos fatores anteriores)
+        private void work(double[] in, int inOff, int stride, double[] out, int outOff, int level,
+                double sign, double[] scratch) {
+            int p = factors[level];
+            int m = n / (stride * p);
+            if (m == 1) {
+                for (int j = 0; j < p; j++) {
+                    int src = inOff + 2 * j * stride;
+                    out[outOff + 2*j] = in[src];
+                    out[outOff + 2*j + 1] = in[src + 1];
+                }
+            } else {
+                for (int j = 0; j < p; j++) {
+                    work(in, inOff + 2 * j * stride, stride * p, out, outOff + 2 * j * m, level + 1, sign, scratch);
+                }
+            }
+            if (p == 4) {
+                butterfly4(out, outOff, stride, m, sign);
+            } else if (p == 2) {
+                butterfly2(out, outOff, stride, m, sign);
+            } else if (p == 3) {
+                butterfly3(out, outOff, stride, m, sign);
+            } else {
+                butterflyGeneric(out, outOff, stride, m, p, sign, scratch);
+            }
+        }
+
+        private void butterfly2(double[] out, int outOff, int stride, int m, double sign) {
+            for (int k = 0; k < m; k++) {
+                int a = outOff + 2*k;
+                int b = a + 2*m;
+                double wr = cos[k * stride];
+                double wi = sign * sin[k * stride];
+                double tr = out[b] * wr - out[b+1] * wi;
+                double ti = out[b] * wi + out[b+1] * wr;
+                out[b] = out[a] - tr;
+                out[b+1] = out[a+1] - ti;
+                out[a] += tr;
+                out[a+1] += ti;
+            }
+        }
+
+        private void butterfly3(double[] out, int outOff, int stride, int m, double sign) {
+            double epi = sign * Math.sin(2 * Math.PI / 3);
+            for (int k = 0; k < m; k++) {
+                int a = outOff + 2*k;
+                int b = a + 2*m;
+                int c = b + 2*m;
+                int t1 = k * stride;
+                int t2 = 2 * k * stride;
+                double s1r = out[b] * cos[t1] - out[b+1] * sign * sin[t1];
+                double s1i = out[b] * sign * sin[t1] + out[b+1] * cos[t1];
+                double s2r = out[c] * cos[t2] - out[c+1] * sign * sin[t2];
+                double s2i = out[c] * sign * sin[t2] + out[c+1] * cos[t2];
+                double s3r = s1r + s2r;
+                double s3i = s1i + s2i;
+                double s0r = (s1r - s2r) * epi;
+                double s0i = (s1i - s2i) * epi;
+                double mr = out[a] - 0.5 * s3r;
+                double mi = out[a+1] - 0.5 * s3i;
+                out[a] += s3r;
+                out[a+1] += s3i;
+                out[c] = mr + s0i;
+                out[c+1] = mi - s0r;
+                out[b] = mr - s0i;
+                out[b+1] = mi + s0r;
+            }
+        }
+
+        private void butterfly4(double[] out, int outOff, int stride, int m, double sign) {
+            for (int k = 0; k < m; k++) {
+                int a = outOff + 2*k;
+                int b = a + 2*m;
+                int c = b + 2*m;
+                int d = c + 2*m;
+                int t1 = k * stride;
+                int t2 = 2 * t1;
+                int t3 = 3 * t1;
+                double s0r = out[b] * cos[t1] - out[b+1] * sign * sin[t1];
+                double s0i = out[b] * sign * sin[t1] + out[b+1] * cos[t1];
+                double s1r = out[c] * cos[t2] - out[c+1] * sign * sin[t2];
+                double s1i = out[c] * sign * sin[t2] + out[c+1] * cos[t2];
+                double s2r = out[d] * cos[t3] - out[d+1] * sign * sin[t3];
+                double s2i = out[d] * sign * sin[t3] + out[d+1] * cos[t3];
+                double s5r = out[a] - s1r;
+                double s5i = out[a+1] - s1i;
+                double f0r = out[a] + s1r;
+                double f0i = out[a+1] + s1i;
+                double s3r = s0r + s2r;
+                double s3i = s0i + s2i;
+                double s4r = s0r - s2r;
+                double s4i = s0i - s2i;
+                out[c] = f0r - s3r;
+                out[c+1] = f0i - s3i;
+                out[a] = f0r + s3r;
+                out[a+1] = f0i + s3i;
+                // Multiplicar s4 por -i (direta) ou +i (inversa)
+                out[b] = s5r - sign * s4i;
+                out[b+1] = s5i + sign * s4r;
+                out[d] = s5r + sign * s4i;
+                out[d+1] = s5i - sign * s4r;
+            }
+        }
+
+        private void butterflyGeneric(double[] out, int outOff, int stride, int m, int p, double sign,
+                double[] scratch) {
+            int temp = 2 * n;
+            for (int u = 0; u < m; u++) {
+                for (int q = 0; q < p; q++) {
+                    int k = outOff + 2 * (q * m + u);
+                    scratch[temp + 2*q] = out[k];
+                    scratch[temp + 2*q + 1] = out[k + 1];
+                }
+                for (int q1 = 0; q1 < p; q1++) {
+                    int k = q1 * m + u;
+                    double re = scratch[temp];
+                    double im = scratch[temp + 1];
+                    int twiddle = 0;
+                    for (int q = 1; q < p; q++) {
+                        twiddle += stride * k;
+                        if (twiddle >= n) {
+                            twiddle %= n;
+                        }
+                        double wr = cos[twiddle];
+                        double wi = sign * sin[twiddle];
+                        double xr = scratch[temp + 2*q];
+                        double xi = scratch[temp + 2*q + 1];
+                        re += xr * wr - xi * wi;
+                        im += xr * wi + xi * wr;
+                    }
+                    out[outOff + 2*k] = re;
+                    out[outOff + 2*k + 1] = im;
+                }
+            }
+        }
+    }
+
+    // Algoritmo de Bluestein: X_k = w_k * sum_j (x_j w_j) conj(w_{k-j}), com w_k = e^(-iπk²/n).
+    // A soma é uma convolução calculada com FFTs radix-2 de tamanho m >= 2n - 1.
+    static class Bluestein extends FFT1D {
+        private final int m;
+        private final Radix2 convolution;
+        private final double[] chirpCos;
+        private final double[] chirpSin;
+        // FFT do kernel conj(w) para a direta e do kernel w para a inversa
+        private final double[] kernelForward;
+        private final double[] kernelInverse;
+
+        Bluestein(int n) {
+            super(n);
+            int size = 1;
+            while (size < 2 * n - 1) {
+                size <<= 1;
+            }
+            m = size;
+            convolution = new Radix2(m);
+            chirpCos = new double[n];
+            chirpSin = new double[n];
+            for (int k = 0; k < n; k++) {
+                // k² mod 2n mantém o ângulo pequeno e preciso para n grande
+                long k2 = (long) k * k % (2L * n);
+                double angle = Math.PI * k2 / n;
+                chirpCos[k] = Math.cos(angle);
+                chirpSin[k] = Math.sin(angle);
+            }
+            kernelForward = kernel(1);
+            kernelInverse = kernel(-1);
+        }
+
+        // FFT de b_k = e^(sign * iπk²/n) posicionado de forma circular (k e m - k)
+        private double[] kernel(double sign) {
+            double[] b = new double[2 * m];
+            for (int k = 0; k < n; k++) {
+                double re = chirpCos[k];
+                double im = sign * chirpSin[k];
+                b[2*k] = re;
+                b[2*k + 1] = im;
+                if (k > 0) {
+                    b[2 * (m - k)] = re;
+                    b[2 * (m - k) + 1] = im;
+                }
+            }
+            convolution.transform(b, 0, null, false);
+            return b;
+        }
+
+        @Override
+        public int scratchSize() {
+            return 2 * m;
+        }
+
+        @Override
+        public void transform(double[] data, int offset, double[] scratch, boolean inverse) {
+            double sign = inverse ? 1 : -1;
+            double[] kernel = inverse ? kernelInverse : kernelForward;
+
+            // a_k = x_k * w_k, completado com zeros
+            for (int k = 0; k < n; k++) {
+                double wr = chirpCos[k];
+                double wi = sign * chirpSin[k];
+                double xr = data[offset + 2*k];
+                double xi = data[offset + 2*k + 1];
+                scratch[2*k] = xr * wr - xi * wi;
+                scratch[2*k + 1] = xr * wi + xi * wr;
+            }
+            java.util.Arrays.fill(scratch, 2 * n, 2 * m, 0);
+
+            convolution.transform(scratch, 0, null, false);
+            for (int k = 0; k < m; k++) {
+                double ar = scratch[2*k];
+                double ai = scratch[2*k + 1];
+                double br = kernel[2*k];
+                double bi = kernel[2*k + 1];
+                scratch[2*k] = ar * br - ai * bi;
+                scratch[2*k + 1] = ar * bi + ai * br;
+            }
+            convolution.transform(scratch, 0, null, true);
+
+            double scale = 1.0 / m;
+            for (int k = 0; k < n; k++) {
+                double wr = chirpCos[k];
+                double wi = sign * chirpSin[k];
+                double cr = scratch[2*k] * scale;
+                double ci = scratch[2*k + 1] * scale;
+                data[offset + 2*k] = cr * wr - ci * wi;
+                data[offset + 2*k + 1] = cr * wi + ci * wr;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache LRU de planos de FFT, chaveado por (altura, largura, sentido, precisão).
+// Em lotes com muitas imagens da mesma resolução, as tabelas de giro e de bit reverso
+// são calculadas uma vez só. Planos do mesmo tamanho em sentidos diferentes compartilham
+// as mesmas FFT1D. A capacidade vem de -Dprocessamento.fft.planos=N (padrão 16).
+public final class FFTPlanCache {
+    private static int capacity = Integer.getInteger("processamento.fft.planos", 16);
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private static final Map<Key, FFTPlan> plans = new LinkedHashMap<Key, FFTPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, FFTPlan> eldest) {
+            if (size() > capacity) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // Área de trabalho de cada thread; cresce conforme o maior plano já usado por ela
+    private static final ThreadLocal<double[]> scratch = ThreadLocal.withInitial(() -> new double[0]);
+
+    private FFTPlanCache() {
+    }
+
+    public static FFTPlan get(int height, int width, FFTPlan.Direction direction, FFTPlan.Precision precision) {
+        Key key = new Key(height, width, direction, precision);
+        synchronized (plans) {
+            FFTPlan plan = plans.get(key);
+            if (plan != null) {
+                hits.incrementAndGet();
+                return plan;
+            }
+            misses.incrementAndGet();
+            FFT1D rows = findTransform(width);
+            if (rows == null) {
+                rows = FFT1D.create(width);
+            }
+            FFT1D columns = height == width ? rows : findTransform(height);
+            if (columns == null) {
+                columns = FFT1D.create(height);
+            }
+            FFT1D.Real realRows = findRealTransform(width);
+            if (realRows == null) {
+                realRows = FFT1D.createReal(width);
+            }
+            plan = new FFTPlan(height, width, direction, precision, rows, columns, realRows);
+            plans.put(key, plan);
+            return plan;
+        }
+    }
+
+    // Reaproveita a FFT1D de um plano já existente com o mesmo comprimento
+    private static FFT1D findTransform(int n) {
+        for (FFTPlan plan : plans.values()) {
+            if (plan.rowTransform().size() == n) {
+                return plan.rowTransform();
+            }
+            if (plan.columnTransform().size() == n) {
+                return plan.columnTransform();
+            }
+        }
+        return null;
+    }
+
+    private static FFT1D.Real findRealTransform(int n) {
+        for (FFTPlan plan : plans.values()) {
+            if (plan.realRowTransform().size() == n) {
+                return plan.realRowTransform();
+            }
+        }
+        return null;
+    }
+
+    static double[] scratch(int size) {
+        double[] buffer = scratch.get();
+        if (buffer.length < size) {
+            buffer = new double[size];
+            scratch.set(buffer);
+        }
+        return buffer;
+    }
+
+    public static void setCapacity(int planCount) {
+        if (planCount < 1) {
+            throw new IllegalArgumentException("Capacidade inválida: " + planCount);
+        }
+        synchronized (plans) {
+            capacity = planCount;
+            // Remove os menos usados até caber na nova capacidade
+            while (plans.size() > capacity) {
+                Key eldest = plans.keySet().iterator().next();
+                plans.remove(eldest);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public static void clear() {
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+
+    public static long hits() {
+        return hits.get();
+    }
+
+    public static long misses() {
+        return misses.get();
+    }
+
+    public static long evictions() {
+        return evictions.get();
+    }
+
+    public static void resetStats() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    public static String stats() {
+        long h = hits.get();
+        long m = misses.get();
+        double rate = h + m == 0 ? 0 : 100.0 * h / (h + m);
+        int size;
+        synchronized (plans) {
+            size = plans.size();
+        }
+        return String.format("planos FFT: %d em cache, %d acertos, %d faltas (%.1f%%), %d removidos",
+                size, h, m, rate, evictions.get());
+    }
+
+    private static final class Key {
+        private final int height;
+        private final int width;
+        private final FFTPlan.Direction direction;
+        private final FFTPlan.Precision precision;
+
+        Key(int height, int width, FFTPlan.Direction direction, FFTPlan.Precision precision) {
+            this.height = height;
+            this.width = width;
+            this.direction = direction;
+            this.precision = precision;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return height == key.height && width == key.width
+                    && direction == key.direction && precision == key.precision;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((height * 31 + width) * 31 + direction.ordinal()) * 31 + precision.ordinal();
+        }
+    }
+}
@@ -0,0 +1,681 @@
+import java.util.Arrays;
+
+// Filtros espaciais sobre PixelBuffer. Cada filtro percorre os planos como arrays
+// lineares e usa uma tabela de deslocamentos para os vizinhos do kernel.
+// Como nas versões originais, as bordas (margem do kernel) ficam em preto.
+// As linhas são divididas em faixas executadas em paralelo (ver Parallel).
+public class FilterEngine {
+
+    // Convolução com kernel inteiro quadrado: soma(coef * pixel) / denominador, por canal.
+    // Kernels de média usam soma deslizante (custo fixo por pixel). Para os demais, um
+    // modelo de custo compara a convolução direta (k² por pixel), a separável (passada
+    // vertical e horizontal, 2k por pixel, só para kernels de posto 1) e a FFT por blocos
+    // (custo quase independente de k) e escolhe a mais barata para o kernel e a imagem; a
+    // FFT só entra com folga (FFT_MARGIN), porque o erro do modelo perto do empate é maior
+    // que o ganho. O resultado é exatamente o mesmo da convolução direta (ver FFT_EXACT_LIMIT).
+    public static PixelBuffer convolve(PixelBuffer input, int[][] kernel, int denominator) {
+        if (isBox(kernel)) {
+            return convolveBox(input, kernel.length, kernel[0][0], denominator);
+        }
+        int tile = chosenTile(kernel, input.getWidth(), input.getHeight());
+        if (tile > 0) {
+            return convolveFFT(input, kernel, denominator, tile);
+        }
+        int[][] factors = separate(kernel);
+        if (factors != null) {
+            return convolveSeparable(input, factors[0], factors[1], denominator);
+        }
+        return convolveDirect(input, kernel, denominator);
+    }
+
+    // Custos por pixel de saída, na unidade de uma multiplicação-soma da convolução direta,
+    // ajustados com discos de 7 a 41 em imagens de 300x200 a 2000x1500 (JIT aquecido): custo
+    // fixo por pixel mais o custo por coeficiente; na FFT, por elemento do bloco, uma unidade
+    // de log2(T²) por transformada mais a multiplicação dos espectros e as cópias. Medido, o
+    // custo fixo da direta é pequeno: o disco 7x7 custa cerca de 49 unidades, não 59
+    static final double DIRECT_BASE = 2;
+    static final double DIRECT_COST = 1.0;
+    static final double SEPARABLE_BASE = 12;
+    static final double SEPARABLE_COST = 0.4;
+    static final double FFT_COST = 0.9;
+    static final double FFT_TILE_COST = 18;
+    // A FFT só é escolhida custando no máximo esta fração da espacial. Na prática ela passa a
+    // entrar a partir do disco 11x11; no 7x7 e no 9x9 os dois ficam perto demais do empate
+    static final double FFT_MARGIN = 0.5;
+
+    // A FFT arredonda cada soma para o inteiro mais próximo. O erro de arredondamento de um
+    // bloco T x T cresce como eps * log2(T²) * |bloco|₂ * |kernel|₂, com |bloco|₂ <= 255 * T e
+    // |kernel|₂ <= soma dos |coef|. Exigindo soma dos |coef| * 255 * T < 2^40 o erro fica
+    // abaixo de 2^40 * 18 * 2^-53 (cerca de 0,002, para T até 512), longe de 0,5
+    private static final long FFT_EXACT_LIMIT = 1L << 40;
+
+    // Bloco da FFT quando o modelo a escolhe para este kernel e imagem, ou 0 para a direta
+    // ou a separável
+    static int chosenTile(int[][] kernel, int width, int height) {
+        int size = kernel.length;
+        double spatial = separate(kernel) != null ? SEPARABLE_BASE + SEPARABLE_COST * 2 * size
+                : DIRECT_BASE + DIRECT_COST * size * size;
+        int tile = fftTile(kernel, width, height);
+        return tile > 0 && fftImageCost(tile, size, width, height) < FFT_MARGIN * spatial ? tile : 0;
+    }
+
+    // Lado do bloco (potência de 2) mais barato para a FFT, ou 0 se ela não se aplica
+    static int fftTile(int[][] kernel, int width, int height) {
+        int size = kernel.length;
+        long absSum = 0;
+        for (int[] row : kernel) {
+            for (int coeff : row) {
+                absSum += Math.abs(coeff);
+            }
+        }
+        if (width < size || height < size) {
+            return 0;
+        }
+        // Blocos maiores que a imagem com a borda do kernel não trazem ganho
+        int limit = Integer.highestOneBit(Math.max(width, height) + size - 1) * 2;
+        int best = 0;
+        double bestCost = Double.MAX_VALUE;
+        // Acima de 512 o bloco sai da cache e o custo por elemento sobe mais que o log
+        for (int tile = 16; tile <= Math.min(limit, 512); tile *= 2) {
+            if (tile - size + 1 < 1 || absSum >= FFT_EXACT_LIMIT / (255L * tile)) {
+                continue;
+            }
+            double cost = fftImageCost(tile, size, width, height);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = tile;
+            }
+        }
+        return best;
+    }
+
+    // Custo por pixel de saída da imagem inteira, contando os blocos cortados na borda
+    static double fftImageCost(int tile, int size, int width, int height) {
+        int step = tile - size + 1;
+        int outWidth = width - 2 * (size / 2);
+        int outHeight = height - 2 * (size / 2);
+        long tiles = (long) ((outWidth + step - 1) / step) * ((outHeight + step - 1) / step);
+        return tiles * fftCost(tile, size) * step * step / ((double) outWidth * outHeight);
+    }
+
+    // Custo por pixel de saída de um bloco tile x tile (ida, multiplicação e volta), que
+    // entrega (tile - size + 1)² pixels
+    static double fftCost(int tile, int size) {
+        int step = tile - size + 1;
+        double area = (double) tile * tile;
+        double log = 2 * (31 - Integer.numberOfLeadingZeros(tile));
+        return area * (2 * FFT_COST * log + FFT_TILE_COST) / ((double) step * step);
+    }
+
+    static PixelBuffer convolveDirect(PixelBuffer input, int[][] kernel, int denominator) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int channels = input.getChannels();
+        PixelBuffer output = new PixelBuffer(width, height, channels);
+        int margin = kernel.length / 2;
+        int[] coeffs = flatten(kernel);
+        int[] offsets = offsets(kernel.length, width);
+
+        Parallel.forRange(margin, height - margin, Parallel.rowGrain(width), (y0, y1) -> {
+            for (int c = 0; c < channels; c++) {
+                byte[] src = input.plane(c);
+                byte[] dst = output.plane(c);
+                for (int y = y0; y < y1; y++) {
+                    int row = y * width;
+                    for (int x = margin; x < width - margin; x++) {
+                        int i = row + x;
+                        long sum = 0;
+                        for (int t = 0; t < coeffs.length; t++) {
+                            sum += (long) coeffs[t] * (src[i + offsets[t]] & 0xff);
+                        }
+                        dst[i] = (byte) clamp(sum / denominator);
+                    }
+                }
+            }
+        });
+        return output;
+    }
+
+    // kernel[i][j] = column[i] * row[j]: primeiro a passada vertical de uma linha inteira,
+    // depois a horizontal sobre esse resultado
+    static PixelBuffer convolveSeparable(PixelBuffer input, int[] column, int[] row, int denominator) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int channels = input.getChannels();
+        PixelBuffer output = new PixelBuffer(width, height, channels);
+        int size = column.length;
+        int margin = size / 2;
+
+        Parallel.forRange(margin, height - margin, Parallel.rowGrain(width), (y0, y1) -> {
+            long[] vertical = new long[width];
+            for (int c = 0; c < channels; c++) {
+                byte[] src = input.plane(c);
+                byte[] dst = output.plane(c);
+                for (int y = y0; y < y1; y++) {
+                    Arrays.fill(vertical, 0);
+                    for (int i = 0; i < size; i++) {
+                        int coeff = column[i];
+                        int base = (y + i - margin) * width;
+                        for (int x = 0; x < width; x++) {
+                            vertical[x] += (long) coeff * (src[base + x] & 0xff);
+                        }
+                    }
+                    int base = y * width;
+                    for (int x = margin; x < width - margin; x++) {
+                        long sum = 0;
+                        for (int j = 0; j < size; j++) {
+                            sum += row[j] * vertical[x + j - margin];
+                        }
+                        dst[base + x] = (byte) clamp(sum / denominator);
+                    }
+                }
+            }
+        });
+        return output;
+    }
+
+    // Kernel de média (todos os coeficientes iguais): somas de coluna atualizadas a cada
+    // linha e uma janela deslizante na horizontal, sem depender do tamanho do kernel
+    static PixelBuffer convolveBox(PixelBuffer input, int size, int coeff, int denominator) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int channels = input.getChannels();
+        PixelBuffer output = new PixelBuffer(width, height, channels);
+        int margin = size / 2;
+        if (height < size || width < size) {
+            return output;
+        }
+
+        // Cada faixa monta as próprias somas de coluna a partir das linhas de halo
+        int grain = Math.max(2 * size, Parallel.rowGrain(width));
+        Parallel.forRange(margin, height - margin, grain, (y0, y1) -> {
+            int[] columns = new int[width];
+            for (int c = 0; c < channels; c++) {
+                byte[] src = input.plane(c);
+                byte[] dst = output.plane(c);
+                Arrays.fill(columns, 0);
+                // Janela de y - margin a y - margin + size - 1, como na convolução direta (com
+                // tamanho par ela tem uma linha a menos abaixo do centro que acima)
+                for (int i = y0 - margin; i < y0 - margin + size; i++) {
+                    int base = i * width;
+                    for (int x = 0; x < width; x++) {
+                        columns[x] += src[base + x] & 0xff;
+                    }
+                }
+                for (int y = y0; y < y1; y++) {
+                    int base = y * width;
+                    long window = 0;
+                    for (int x = 0; x < size; x++) {
+                        window += columns[x];
+                    }
+                    for (int x = margin; x < width - margin; x++) {
+                        dst[base + x] = (byte) clamp(coeff * window / denominator);
+                        if (x - margin + size < width) {
+                            window += columns[x - margin + size] - columns[x - margin];
+                        }
+                    }
+                    // Desliza a janela vertical uma linha para baixo
+                    if (y + 1 < y1) {
+                        int add = (y - margin + size) * width;
+                        int remove = (y - margin) * width;
+                        for (int x = 0; x < width; x++) {
+                            columns[x] += (src[add + x] & 0xff) - (src[remove + x] & 0xff);
+                        }
+                    }
+                }
+            }
+        });
+        return output;
+    }
+
+    // Convolução por FFT em blocos (overlap-save): cada bloco tile x tile da entrada é
+    // transformado, multiplicado pelo espectro do kernel espelhado (correlação, como nas
+    // outras versões) e volta; só as (tile - size + 1)² saídas sem dobra circular são usadas.
+    // Cada soma é arredondada para o inteiro mais próximo antes da divisão inteira
+    static PixelBuffer convolveFFT(PixelBuffer input, int[][] kernel, int denominator, int tile) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int channels = input.getChannels();
+        PixelBuffer output = new PixelBuffer(width, height, channels);
+        int size = kernel.length;
+        int margin = size / 2;
+        if (height < size || width < size) {
+            return output;
+        }
+        int step = tile - size + 1;
+        FFTPlan forward = FFTPlanCache.get(tile, tile, FFTPlan.Direction.FORWARD, FFTPlan.Precision.DOUBLE);
+        FFTPlan inverse = FFTPlanCache.get(tile, tile, FFTPlan.Direction.INVERSE, FFTPlan.Precision.DOUBLE);
+        int stride = 2 * forward.halfSpectrumColumns();
+
+        // Espectro do kernel espelhado, já com a escala 1 / tile² da inversa
+        double[] kernelSpectrum = new double[tile * stride];
+        for (int a = 0; a < size; a++) {
+            for (int b = 0; b < size; b++) {
+                kernelSpectrum[a * stride + b] = kernel[size - 1 - a][size - 1 - b];
+            }
+        }
+        forward.real(kernelSpectrum, false);
+        double scale = 1.0 / ((double) tile * tile);
+        for (int i = 0; i < kernelSpectrum.length; i++) {
+            kernelSpectrum[i] *= scale;
+        }
+
+        int lastY = height - margin;
+        int lastX = width - margin;
+        int tilesX = (lastX - margin + step - 1) / step;
+        int tilesY = (lastY - margin + step - 1) / step;
+        Parallel.forRange(0, tilesY, 1, (t0, t1) -> {
+            double[] data = new double[tile * stride];
+            for (int ty = t0; ty < t1; ty++) {
+                // Primeira linha de saída do bloco; a entrada começa margin linhas acima
+                int y0 = margin + ty * step;
+                int rows = Math.min(step, lastY - y0);
+                for (int tx = 0; tx < tilesX; tx++) {
+                    int x0 = margin + tx * step;
+                    int cols = Math.min(step, lastX - x0);
+                    for (int c = 0; c < channels; c++) {
+                        byte[] src = input.plane(c);
+                        byte[] dst = output.plane(c);
+                        Arrays.fill(data, 0);
+                        int inRows = Math.min(tile, height - (y0 - margin));
+                        int inCols = Math.min(tile, width - (x0 - margin));
+                        for (int p = 0; p < inRows; p++) {
+                            int base = (y0 - margin + p) * width + x0 - margin;
+                            int row = p * stride;
+                            for (int q = 0; q < inCols; q++) {
+                                data[row + q] = src[base + q] & 0xff;
+                            }
+                        }
+                        forward.real(data, false);
+                        for (int i = 0; i < data.length; i += 2) {
+                            double re = data[i];
+                            double im = data[i + 1];
+                            double kr = kernelSpectrum[i];
+                            double ki = kernelSpectrum[i + 1];
+                            data[i] = re * kr - im * ki;
+                            data[i + 1] = re * ki + im * kr;
+                        }
+                        inverse.real(data, false);
+                        // A saída (y0 + p, x0 + q) está na posição (size - 1 + p, size - 1 + q)
+                        for (int p = 0; p < rows; p++) {
+                            int row = (size - 1 + p) * stride + size - 1;
+                            int base = (y0 + p) * width + x0;
+                            for (int q = 0; q < cols; q++) {
+                                dst[base + q] = (byte) clamp(Math.round(data[row + q]) / denominator);
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return output;
+    }
+
+    // Kernel circular (disco) de raio radius, lado 2 * radius + 1, não separável
+    public static int[][] diskKernel(int radius) {
+        int size = 2 * radius + 1;
+        int[][] kernel = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int dy = i - radius;
+                int dx = j - radius;
+                kernel[i][j] = dx * dx + dy * dy <= radius * radius ? 1 : 0;
+            }
+        }
+        return kernel;
+    }
+
+    // Kernel de média size x size (denominador = size * size)
+    public static int[][] boxKernel(int size) {
+        int[][] kernel = new int[size][size];
+        for (int[] row : kernel) {
+            Arrays.fill(row, 1);
+        }
+        return kernel;
+    }
+
+    // Aproximação binomial do gaussiano (linha do triângulo de Pascal), denominador = kernelSum
+    public static int[][] binomialKernel(int size) {
+        if (size > 15) {
+            throw new IllegalArgumentException("Kernel binomial limitado a 15x15 (use gaussianKernel): " + size);
+        }
+        int[] pascal = new int[size];
+        pascal[0] = 1;
+        for (int n = 1; n < size; n++) {
+            for (int k = n; k > 0; k--) {
+                pascal[k] += pascal[k - 1];
+            }
+        }
+        int[][] kernel = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                kernel[i][j] = pascal[i] * pascal[j];
+            }
+        }
+        return kernel;
+    }
+
+    // Gaussiano amostrado com pesos inteiros (máximo 1000 por eixo), separável por construção
+    public static int[][] gaussianKernel(int size, double sigma) {
+        int margin = size / 2;
+        int[] weights = new int[size];
+        for (int i = 0; i < size; i++) {
+            double d = i - margin;
+            weights[i] = Math.max(1, (int) Math.round(1000 * Math.exp(-d * d / (2 * sigma * sigma))));
+        }
+        int[][] kernel = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                kernel[i][j] = weights[i] * weights[j];
+            }
+        }
+        return kernel;
+    }
+
+    public static int kernelSum(int[][] kernel) {
+        int sum = 0;
+        for (int[] row : kernel) {
+            for (int coeff : row) {
+                sum += coeff;
+            }
+        }
+        return sum;
+    }
+
+    static boolean isBox(int[][] kernel) {
+        int coeff = kernel[0][0];
+        for (int[] row : kernel) {
+            for (int value : row) {
+                if (value != coeff) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Decompõe um kernel de posto 1 em coluna x linha inteiras; null se não for separável
+    static int[][] separate(int[][] kernel) {
+        int size = kernel.length;
+        int pivotRow = -1;
+        for (int i = 0; i < size && pivotRow < 0; i++) {
+            for (int j = 0; j < size; j++) {
+                if (kernel[i][j] != 0) {
+                    pivotRow = i;
+                    break;
+                }
+            }
+        }
+        if (pivotRow < 0) {
+            return null;
+        }
+
+        // A linha dividida pelo mdc garante que a coluna também sai inteira
+        int divisor = 0;
+        for (int value : kernel[pivotRow]) {
+            divisor = gcd(divisor, Math.abs(value));
+        }
+        int[] row = new int[size];
+        int pivotCol = -1;
+        for (int j = 0; j < size; j++) {
+            row[j] = kernel[pivotRow][j] / divisor;
+            if (pivotCol < 0 && row[j] != 0) {
+                pivotCol = j;
+            }
+        }
+        int[] column = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (kernel[i][pivotCol] % row[pivotCol] != 0) {
+                return null;
+            }
+            column[i] = kernel[i][pivotCol] / row[pivotCol];
+            for (int j = 0; j < size; j++) {
+                if ((long) column[i] * row[j] != kernel[i][j]) {
+                    return null;
+                }
+            }
+        }
+        return new int[][] {column, row};
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    // Mapas de borda pedidos em edges()
+    public static final int SOBEL = 1;
+    public static final int LAPLACIAN = 2;
+    public static final int GRADIENT = 4;
+
+    // Resultado de edges(): os mapas não pedidos ficam null
+    public static class EdgeMaps {
+        public PixelBuffer sobel;
+        public PixelBuffer laplacian;
+        public PixelBuffer gradient;
+        public PixelBuffer graySobel;
+        public PixelBuffer grayLaplacian;
+        public PixelBuffer grayGradient;
+    }
+
+    // Magnitude do Sobel somando os canais; pixel de borda = 0 (preto), fundo = 255
+    public static PixelBuffer sobel(PixelBuffer input, int[][] kernelX, int[][] kernelY, int tolerance) {
+        return edges(input, kernelX, kernelY, null, tolerance, SOBEL, true, false).sobel;
+    }
+
+    public static PixelBuffer laplacian(PixelBuffer input, int[][] kernel, int tolerance) {
+        return edges(input, null, null, kernel, tolerance, LAPLACIAN, true, false).laplacian;
+    }
+
+    // Diferenças centrais: |dx| e |dy| são somados canal a canal, depois a magnitude
+    public static PixelBuffer gradient(PixelBuffer input, int tolerance) {
+        return edges(input, null, null, null, tolerance, GRADIENT, true, false).gradient;
+    }
+
+    // Detector de bordas fundido: lê cada vizinhança 3x3 uma única vez e produz todos os
+    // mapas pedidos (máscara SOBEL | LAPLACIAN | GRADIENT) numa só varredura.
+    // color = mapas sobre os canais da entrada (mesmo resultado de sobel/laplacian/gradient);
+    // gray = mapas sobre a luminância 0.299R + 0.587G + 0.114B, calculada na mesma passada.
+    public static EdgeMaps edges(PixelBuffer input, int[][] kernelX, int[][] kernelY, int[][] laplacian,
+            int tolerance, int maps, boolean color, boolean gray) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int channels = input.getChannels();
+        boolean doSobel = (maps & SOBEL) != 0;
+        boolean doLaplacian = (maps & LAPLACIAN) != 0;
+        boolean doGradient = (maps & GRADIENT) != 0;
+        int[] kx = doSobel ? flatten(kernelX) : null;
+        int[] ky = doSobel ? flatten(kernelY) : null;
+        int[] kl = doLaplacian ? flatten(laplacian) : null;
+        int limit = tolerance * tolerance;
+
+        EdgeMaps result = new EdgeMaps();
+        if (color) {
+            result.sobel = doSobel ? new PixelBuffer(width, height, 1) : null;
+            result.laplacian = doLaplacian ? new PixelBuffer(width, height, 1) : null;
+            result.gradient = doGradient ? new PixelBuffer(width, height, 1) : null;
+        }
+        if (gray) {
+            result.graySobel = doSobel ? new PixelBuffer(width, height, 1) : null;
+            result.grayLaplacian = doLaplacian ? new PixelBuffer(width, height, 1) : null;
+            result.grayGradient = doGradient ? new PixelBuffer(width, height, 1) : null;
+        }
+        byte[] sobelOut = plane(result.sobel);
+        byte[] laplacianOut = plane(result.laplacian);
+        byte[] gradientOut = plane(result.gradient);
+        byte[] graySobelOut = plane(result.graySobel);
+        byte[] grayLaplacianOut = plane(result.grayLaplacian);
+        byte[] grayGradientOut = plane(result.grayGradient);
+
+        Parallel.forRange(1, height - 1, Parallel.rowGrain(width), (y0, y1) -> {
+            // Três linhas em anel com a soma dos canais e a luminância de cada pixel
+            int[][] sums = color ? new int[3][width] : null;
+            int[][] lumas = gray ? new int[3][width] : null;
+            loadRow(input, y0 - 1, sums, lumas);
+            loadRow(input, y0, sums, lumas);
+
+            for (int y = y0; y < y1; y++) {
+                loadRow(input, y + 1, sums, lumas);
+                int row = y * width;
+
+                // Cada mapa percorre a linha no seu próprio laço: as três linhas do anel
+                // já estão no cache, então a vizinhança só é lida da memória uma vez
+                if (color) {
+                    int[] s0 = sums[(y - 1) % 3], s1 = sums[y % 3], s2 = sums[(y + 1) % 3];
+                    if (doSobel) {
+                        sobelRow(kx, ky, s0, s1, s2, sobelOut, row, width, limit);
+                    }
+                    if (doLaplacian) {
+                        laplacianRow(kl, s0, s1, s2, laplacianOut, row, width, tolerance);
+                    }
+                    if (doGradient) {
+                        for (int x = 1; x < width - 1; x++) {
+                            int i = row + x;
+                            int gx = 0;
+                            int gy = 0;
+                            for (int c = 0; c < channels; c++) {
+                                byte[] p = input.plane(c);
+                                gx += Math.abs((p[i + 1] & 0xff) - (p[i - 1] & 0xff));
+                                gy += Math.abs((p[i + width] & 0xff) - (p[i - width] & 0xff));
+                            }
+                            gradientOut[i] = edge(gx * gx + gy * gy > limit);
+                        }
+                    }
+                }
+
+                if (gray) {
+                    int[] l0 = lumas[(y - 1) % 3], l1 = lumas[y % 3], l2 = lumas[(y + 1) % 3];
+                    if (doSobel) {
+                        sobelRow(kx, ky, l0, l1, l2, graySobelOut, row, width, limit);
+                    }
+                    if (doLaplacian) {
+                        laplacianRow(kl, l0, l1, l2, grayLaplacianOut, row, width, tolerance);
+                    }
+                    if (doGradient) {
+                        for (int x = 1; x < width - 1; x++) {
+                            int gx = Math.abs(l1[x + 1] - l1[x - 1]);
+                            int gy = Math.abs(l2[x] - l0[x]);
+                            grayGradientOut[row + x] = edge(gx * gx + gy * gy > limit);
+                        }
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    // Luminância de cada pixel num plano novo de um canal
+    public static PixelBuffer luma(PixelBuffer input) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        PixelBuffer output = new PixelBuffer(width, height, 1);
+        byte[] dst = output.plane(0);
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (y0, y1) -> {
+            int[][] rows = new int[3][width];
+            for (int y = y0; y < y1; y++) {
+                loadRow(input, y, null, rows);
+                int[] values = rows[y % 3];
+                for (int x = 0; x < width; x++) {
+                    dst[y * width + x] = (byte) values[x];
+                }
+            }
+        });
+        return output;
+    }
+
+    private static void loadRow(PixelBuffer input, int y, int[][] sums, int[][] lumas) {
+        int width = input.getWidth();
+        int base = y * width;
+        byte[] p0 = input.plane(0);
+        if (input.getChannels() == 1) {
+            int[] sum = sums != null ? sums[y % 3] : null;
+            int[] luma = lumas != null ? lumas[y % 3] : null;
+            for (int x = 0; x < width; x++) {
+                int v = p0[base + x] & 0xff;
+                if (sum != null) {
+                    sum[x] = v;
+                }
+                if (luma != null) {
+                    luma[x] = v;
+                }
+            }
+            return;
+        }
+        byte[] p1 = input.plane(1);
+        byte[] p2 = input.plane(2);
+        if (sums != null) {
+            int[] sum = sums[y % 3];
+            for (int x = 0; x < width; x++) {
+                sum[x] = (p0[base + x] & 0xff) + (p1[base + x] & 0xff) + (p2[base + x] & 0xff);
+            }
+        }
+        if (lumas != null) {
+            int[] luma = lumas[y % 3];
+            for (int x = 0; x < width; x++) {
+                luma[x] = (int) (0.299 * (p0[base + x] & 0xff) + 0.587 * (p1[base + x] & 0xff)
+                        + 0.114 * (p2[base + x] & 0xff));
+            }
+        }
+    }
+
+    private static void sobelRow(int[] kx, int[] ky, int[] top, int[] mid, int[] bottom,
+            byte[] dst, int row, int width, int limit) {
+        for (int x = 1; x < width - 1; x++) {
+            int vh = apply(ky, top, mid, bottom, x);
+            int vw = apply(kx, top, mid, bottom, x);
+            dst[row + x] = edge(vh * vh + vw * vw > limit);
+        }
+    }
+
+    private static void laplacianRow(int[] k, int[] top, int[] mid, int[] bottom,
+            byte[] dst, int row, int width, int tolerance) {
+        for (int x = 1; x < width - 1; x++) {
+            int sum = apply(k, top, mid, bottom, x);
+            dst[row + x] = edge(Math.min(255, Math.abs(sum)) > tolerance);
+        }
+    }
+
+    // Kernel 3x3 achatado aplicado às linhas de cima, do meio e de baixo na coluna x
+    private static int apply(int[] k, int[] top, int[] mid, int[] bottom, int x) {
+        return k[0] * top[x - 1] + k[1] * top[x] + k[2] * top[x + 1]
+                + k[3] * mid[x - 1] + k[4] * mid[x] + k[5] * mid[x + 1]
+                + k[6] * bottom[x - 1] + k[7] * bottom[x] + k[8] * bottom[x + 1];
+    }
+
+    private static byte[] plane(PixelBuffer buffer) {
+        return buffer != null ? buffer.plane(0) : null;
+    }
+
+    private static byte edge(boolean isEdge) {
+        return isEdge ? 0 : (byte) 255;
+    }
+
+    static int clamp(long value) {
+        return (int) Math.min(255, Math.max(0, value));
+    }
+
+    static int[] flatten(int[][] kernel) {
+        int size = kernel.length;
+        int[] flat = new int[size * size];
+        for (int fy = 0; fy < size; fy++) {
+            System.arraycopy(kernel[fy], 0, flat, fy * size, size);
+        }
+        return flat;
+    }
+
+    // Deslocamento linear de cada posição do kernel em relação ao pixel central
+    static int[] offsets(int size, int width) {
+        int margin = size / 2;
+        int[] offsets = new int[size * size];
+        for (int fy = 0; fy < size; fy++) {
+            for (int fx = 0; fx < size; fx++) {
+                offsets[fy * size + fx] = (fy - margin) * width + (fx - margin);
+            }
+        }
+        return offsets;
+    }
+}
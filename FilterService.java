@@ -0,0 +1,192 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+// Filtros do PassaBaixa e do PassaAlta sem interface gráfica: não carrega Swing nem abre
+// janela, então roda em servidor headless e no lote. As janelas só exibem o que sai daqui,
+// e o cálculo vai para um pool de threads próprio (submit), fora da thread de eventos.
+// O tamanho do pool vem de -Dprocessamento.servico.threads=N (padrão: núcleos).
+//
+//   java FilterService passa-baixa|passa-alta [entrada] [diretório de saída]
+public final class FilterService {
+    static final int[][] MEDIA_3x3 = {
+        {1, 1, 1},
+        {1, 1, 1},
+        {1, 1, 1}
+    };
+
+    static final int[][] MEDIA_5x5 = {
+        {1, 1, 1, 1, 1},
+        {1, 1, 1, 1, 1},
+        {1, 1, 1, 1, 1},
+        {1, 1, 1, 1, 1},
+        {1, 1, 1, 1, 1}
+    };
+
+    static final int[][] GAUSS_3x3 = {
+        {1, 2, 1},
+        {2, 4, 2},
+        {1, 2, 1}
+    };
+
+    static final int[][] GAUSS_5x5 = {
+        {1,  4,  6,  4, 1},
+        {4, 16, 24, 16, 4},
+        {6, 24, 36, 24, 6},
+        {4, 16, 24, 16, 4},
+        {1,  4,  6,  4, 1}
+    };
+
+    static final int[][] SOBEL_X = {{-1, 0, 1}, {-2, 0, 2}, {-1, 0, 1}};
+    static final int[][] SOBEL_Y = {{-1, -2, -1}, {0, 0, 0}, {1, 2, 1}};
+    static final int[][] LAPLACIAN = {{0, 1, 0}, {1, -4, 1}, {0, 1, 0}};
+    static final int TOLERANCE = 80;
+
+    // Arquivo de cada resultado gravado, pelo título do painel
+    private static final Map<String, String> FILES = new LinkedHashMap<>();
+
+    static {
+        FILES.put("Média 3x3", "media_3x3.png");
+        FILES.put("Média 5x5", "media_5x5.png");
+        FILES.put("Gaussiano 3x3", "gauss_3x3.png");
+        FILES.put("Gaussiano 5x5", "gauss_5x5.png");
+        FILES.put("Sobel RGB", "sobel_rgb.png");
+        FILES.put("Laplaciano RGB", "laplacian_rgb.png");
+        FILES.put("Gradiente RGB", "gradient_rgb.png");
+        FILES.put("Sobel Gray", "sobel_gray.png");
+        FILES.put("Laplaciano Gray", "laplacian_gray.png");
+        FILES.put("Gradiente Gray", "gradient_gray.png");
+    }
+
+    private static ExecutorService workers;
+
+    private FilterService() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || (!args[0].equals("passa-baixa") && !args[0].equals("passa-alta"))) {
+            System.out.println("Uso: java FilterService passa-baixa|passa-alta [entrada] [diretório de saída]");
+            return;
+        }
+        runHeadless(args[0], new File(args.length > 1 ? args[1] : "Flamengo.jpg"),
+                new File(args.length > 2 ? args[2] : "."));
+    }
+
+    // Caminho sem janela dos dois programas: calcula e grava os resultados em PNG
+    public static void runHeadless(String filters, File input, File outputDir) throws IOException {
+        BufferedImage original = read(input);
+        Map<String, BufferedImage> results = filters.equals("passa-alta") ? edges(original) : lowPass(original);
+        int written = write(results, outputDir);
+        System.out.println(written + " imagens gravadas em " + outputDir.getAbsolutePath());
+    }
+
+    public static BufferedImage read(File input) throws IOException {
+        BufferedImage image = ImageIO.read(input);
+        if (image == null) {
+            throw new IOException("Não foi possível carregar a imagem " + input);
+        }
+        return image;
+    }
+
+    // Original e os quatro filtros do PassaBaixa, na ordem dos painéis
+    public static Map<String, BufferedImage> lowPass(BufferedImage original) {
+        Map<String, BufferedImage> results = new LinkedHashMap<>();
+        results.put("Original", original);
+        results.put("Média 3x3", convolve(original, MEDIA_3x3, 9));
+        results.put("Média 5x5", convolve(original, MEDIA_5x5, 25));
+        results.put("Gaussiano 3x3", convolve(original, GAUSS_3x3, 16));
+        results.put("Gaussiano 5x5", convolve(original, GAUSS_5x5, 256));
+        return results;
+    }
+
+    // Original, Sobel, Laplaciano e gradiente sobre a colorida e sobre a cinza, na ordem dos
+    // painéis do PassaAlta: os três mapas saem de uma varredura só em cada imagem
+    public static Map<String, BufferedImage> edges(BufferedImage original) {
+        BufferedImage gray = grayscale(original);
+        int maps = FilterEngine.SOBEL | FilterEngine.LAPLACIAN | FilterEngine.GRADIENT;
+        FilterEngine.EdgeMaps rgbEdges = FilterEngine.edges(PixelBuffer.fromImage(original), SOBEL_X, SOBEL_Y,
+                LAPLACIAN, TOLERANCE, maps, true, false);
+        FilterEngine.EdgeMaps grayEdges = FilterEngine.edges(PixelBuffer.fromImage(gray), SOBEL_X, SOBEL_Y,
+                LAPLACIAN, TOLERANCE, maps, true, false);
+
+        Map<String, BufferedImage> results = new LinkedHashMap<>();
+        results.put("Original RGB", original);
+        results.put("Sobel RGB", rgbEdges.sobel.toImage(original.getType()));
+        results.put("Laplaciano RGB", rgbEdges.laplacian.toImage(original.getType()));
+        results.put("Gradiente RGB", rgbEdges.gradient.toImage(original.getType()));
+        results.put("Original Gray", gray);
+        results.put("Sobel Gray", grayEdges.sobel.toImage(gray.getType()));
+        results.put("Laplaciano Gray", grayEdges.laplacian.toImage(gray.getType()));
+        results.put("Gradiente Gray", grayEdges.gradient.toImage(gray.getType()));
+        return results;
+    }
+
+    static BufferedImage convolve(BufferedImage input, int[][] kernel, int denominator) {
+        return FilterEngine.convolve(PixelBuffer.fromImage(input), kernel, denominator).toImage(input.getType());
+    }
+
+    // Cinza do PassaAlta (drawImage numa TYPE_BYTE_GRAY); o Java2D desenha sem display
+    static BufferedImage grayscale(BufferedImage input) {
+        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = output.createGraphics();
+        g.drawImage(input, 0, 0, null);
+        g.dispose();
+        return output;
+    }
+
+    // Grava em PNG os resultados que têm arquivo (os originais não são regravados) e
+    // devolve quantos foram gravados
+    public static int write(Map<String, BufferedImage> results, File outputDir) throws IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Não foi possível criar " + outputDir);
+        }
+        int written = 0;
+        for (Map.Entry<String, BufferedImage> result : results.entrySet()) {
+            String file = FILES.get(result.getKey());
+            if (file != null) {
+                ImageIO.write(result.getValue(), "png", new File(outputDir, file));
+                written++;
+            }
+        }
+        return written;
+    }
+
+    // Roda a tarefa no pool do serviço; erros (inclusive IOException) completam o future
+    // com exceção
+    public static <T> CompletableFuture<T> submit(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, workers());
+    }
+
+    private static synchronized ExecutorService workers() {
+        if (workers == null) {
+            int threads = Integer.getInteger("processamento.servico.threads",
+                    Runtime.getRuntime().availableProcessors());
+            AtomicInteger count = new AtomicInteger();
+            // Threads daemon: o pool não segura a JVM aberta depois que a janela fecha
+            workers = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "filtros-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workers;
+    }
+}
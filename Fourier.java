@@ -1,252 +1,392 @@
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.DoubleAccumulator;
 import javax.imageio.ImageIO;
 
 public class Fourier {
     public static void main(String[] args) {
         try {
-            // 1. Carrega a imagem em escala de cinza
-            BufferedImage grayscaleImage = ImageIO.read(new File("grayscale.jpg"));
-            if (grayscaleImage == null) {
-                System.out.println("Erro: Não foi possível carregar a imagem grayscale.jpg");
-                return;
-            }
+            // 1. Carrega a imagem em escala de cinza: grayscale.jpg ou o arquivo do argumento.
+            //    Um .raw (RawRaster) é mapeado e lido direto do buffer, sem decodificação; se
+            //    for um espectro gravado antes, a FFT direta é pulada
+            File input = new File(args.length > 0 ? args[0] : "grayscale.jpg");
+            boolean useFloat = "float".equalsIgnoreCase(System.getProperty("processamento.fft.precisao"));
+            // Com -Dprocessamento.fft.espectro=arquivo.raw o meio espectro é gravado para ser
+            // recarregado depois com "java Fourier arquivo.raw"
+            String dump = System.getProperty("processamento.fft.espectro");
 
-            int width = grayscaleImage.getWidth();
-            int height = grayscaleImage.getHeight();
+            int width;
+            int height;
+            RawRaster raw = null;
+            ByteBuffer gray = null;
+            if (input.getName().endsWith(".raw")) {
+                raw = RawRaster.open(input);
+                width = raw.getWidth();
+                height = raw.getHeight();
+                if (!raw.isHalfSpectrum()) {
+                    // Só planos de 8 bits sem preenchimento são o cinza que a FFT lê direto do mapa
+                    if (raw.getKind() != RawRaster.Kind.U8 || raw.getColumns() != width) {
+                        System.out.println("Erro: " + input + " é um arquivo bruto " + raw.getKind() + " com "
+                                + raw.getColumns() + " colunas; esperado um plano U8 de " + width
+                                + " colunas ou um meio espectro");
+                        return;
+                    }
+                    gray = raw.plane(raw.getPlanes() - 1);
+                }
+            } else {
+                BufferedImage grayscaleImage = ImageIO.read(input);
+                if (grayscaleImage == null) {
+                    System.out.println("Erro: Não foi possível carregar a imagem " + input);
+                    return;
+                }
+                width = grayscaleImage.getWidth();
+                height = grayscaleImage.getHeight();
+                gray = grayPlane(grayscaleImage);
+            }
 
-            // 2. Converte a imagem para uma matriz de doubles (valores de 0 a 255)
-            double[][] imageData = new double[height][width];
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    imageData[y][x] = grayscaleImage.getRGB(x, y) & 0xff;
+            // 2..8. Por padrão em double; com -Dprocessamento.fft.precisao=float os buffers
+            //       ficam em float (metade da memória) e o erro fica bem abaixo de um nível de cinza
+            BufferedImage[] images;
+            if (useFloat) {
+                float[] spectrum = gray != null ? forwardFloat(gray, width, height) : raw.readSpectrumFloat();
+                if (dump != null) {
+                    RawRaster.writeSpectrum(new File(dump), spectrum, width, height);
                 }
+                images = processFloat(spectrum, width, height);
+            } else {
+                double[] spectrum = gray != null ? forwardDouble(gray, width, height) : raw.readSpectrum();
+                if (dump != null) {
+                    RawRaster.writeSpectrum(new File(dump), spectrum, width, height);
+                }
+                images = processDouble(spectrum, width, height);
             }
+            BufferedImage spectrumImage = images[0];
+            BufferedImage resultImage = images[1];
+
+            // Salva a imagem do espectro de frequência
+            ImageIO.write(spectrumImage, "jpg", new File("spectrum.jpg"));
+
+            // Salva a imagem final com bordas realçadas
+            ImageIO.write(resultImage, "jpg", new File("fourier_enhanced.jpg"));
+            System.out.println("Processamento FFT concluído. Resultados salvos em:");
+            System.out.println("- spectrum.jpg (espectro de frequência)");
+            System.out.println("- fourier_enhanced.jpg (imagem com bordas realçadas)");
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-            // 3. Prepara uma matriz para os dados complexos (parte real e imaginária)
-            double[][] complexData = new double[height][2 * width];
-            for (int y = 0; y < height; y++) {
+    // Espectro e imagem realçada calculados com buffers double
+    static BufferedImage[] processDouble(BufferedImage grayscaleImage) {
+        int width = grayscaleImage.getWidth();
+        int height = grayscaleImage.getHeight();
+        return processDouble(forwardDouble(grayPlane(grayscaleImage), width, height), width, height);
+    }
+
+    // 2. Converte o plano de cinza (valores de 0 a 255, do array ou do arquivo mapeado) para
+    //    um buffer contínuo de doubles. A FFT real trabalha in-place, então cada linha já
+    //    tem espaço para o meio espectro
+    // 3/4. Aplica a FFT 2D real (Transformada de Fourier Rápida). Como a entrada é real,
+    //      o espectro é simétrico e só as colunas 0..width/2 são calculadas e guardadas
+    static double[] forwardDouble(ByteBuffer gray, int width, int height) {
+        DoubleFFT_2D fft = new DoubleFFT_2D(height, width);
+        int stride = 2 * fft.halfSpectrumColumns();
+        double[] complexData = new double[height * stride];
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (from, to) -> {
+            for (int y = from; y < to; y++) {
                 for (int x = 0; x < width; x++) {
-                    complexData[y][2*x] = imageData[y][x];  // Parte real
-                    complexData[y][2*x+1] = 0;              // Parte imaginária
+                    complexData[y*stride + x] = gray.get(y*width + x) & 0xff;
                 }
             }
+        });
+        fft.realForward(complexData);
+        return complexData;
+    }
 
-            // 4. Aplica a FFT 2D (Transformada de Fourier Rápida)
-            DoubleFFT_2D fft = new DoubleFFT_2D(height, width);
-            fft.complexForward(complexData);
+    // Passos 5 a 8 a partir do meio espectro (calculado agora ou recarregado de um .raw)
+    static BufferedImage[] processDouble(double[] complexData, int width, int height) {
+        DoubleFFT_2D fft = new DoubleFFT_2D(height, width);
+        int stride = 2 * fft.halfSpectrumColumns();
 
-            // 5. Gera a imagem do espectro de frequência (visualização das frequências)
-            BufferedImage spectrumImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-            double maxSpectrum = Double.MIN_VALUE;
+        // 5. Gera a imagem do espectro de frequência (visualização das frequências)
+        BufferedImage spectrumImage = spectrumImage(complexData, width, height, stride);
 
-            // Primeiro encontra o valor máximo do espectro para normalização
-            for (int y = 0; y < height; y++) {
+        // 6. Aplica um filtro passa-alta no domínio da frequência. O fator é simétrico
+        //    (depende de |x - width/2| e |y - height/2|), então basta aplicá-lo à metade
+        //    guardada; a máscara vem do cache e só é calculada uma vez por resolução
+        FrequencyFilters.apply(complexData, height, width, FrequencyFilters.highPass(height, width));
+
+        // 7. Aplica a FFT inversa para voltar ao domínio espacial (imagem)
+        fft.realInverse(complexData, true);
+
+        // 8. Constrói a imagem final a partir dos dados complexos (magnitude)
+        return new BufferedImage[] {spectrumImage, resultImage(complexData, width, height, stride)};
+    }
+
+    // Só a imagem realçada (passos 2, 3/4, 6, 7 e 8), de buffer para buffer, para quem
+    // encadeia etapas em memória (ver Pipeline)
+    static PixelBuffer enhance(PixelBuffer gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        int stride = 2 * (width / 2 + 1);
+        double[] complexData = forwardDouble(ByteBuffer.wrap(gray.plane(gray.getChannels() - 1)), width, height);
+        FrequencyFilters.apply(complexData, height, width, FrequencyFilters.highPass(height, width));
+        new DoubleFFT_2D(height, width).realInverse(complexData, true);
+        return resultBuffer(complexData, width, height, stride);
+    }
+
+    // Plano que a FFT lê de uma imagem: o cinza, ou o canal azul de uma imagem colorida, que
+    // era o que getRGB(x, y) & 0xff lia
+    private static ByteBuffer grayPlane(BufferedImage image) {
+        PixelBuffer pixels = PixelBuffer.fromImage(image);
+        return ByteBuffer.wrap(pixels.plane(pixels.getChannels() - 1));
+    }
+
+    // Mesmo processamento com buffers float: a FFT calcula em double linha a linha,
+    // só o armazenamento entre as passadas é float
+    static BufferedImage[] processFloat(BufferedImage grayscaleImage) {
+        int width = grayscaleImage.getWidth();
+        int height = grayscaleImage.getHeight();
+        return processFloat(forwardFloat(grayPlane(grayscaleImage), width, height), width, height);
+    }
+
+    static float[] forwardFloat(ByteBuffer gray, int width, int height) {
+        FloatFFT_2D fft = new FloatFFT_2D(height, width);
+        int stride = 2 * fft.halfSpectrumColumns();
+        float[] complexData = new float[height * stride];
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (from, to) -> {
+            for (int y = from; y < to; y++) {
                 for (int x = 0; x < width; x++) {
-                    double re = complexData[y][2*x];
-                    double im = complexData[y][2*x+1];
-                    double magnitude = Math.log(1 + Math.sqrt(re*re + im*im));
-                    maxSpectrum = Math.max(maxSpectrum, magnitude);
+                    complexData[y*stride + x] = gray.get(y*width + x) & 0xff;
                 }
             }
+        });
+        fft.realForward(complexData);
+        return complexData;
+    }
 
-            // Centraliza o espectro e normaliza para exibição
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    // Shift para centralizar o espectro (frequências baixas no centro)
-                    int shiftedY = (y + height/2) % height;
-                    int shiftedX = (x + width/2) % width;
-                    
-                    double re = complexData[y][2*x];
-                    double im = complexData[y][2*x+1];
+    static BufferedImage[] processFloat(float[] complexData, int width, int height) {
+        FloatFFT_2D fft = new FloatFFT_2D(height, width);
+        int stride = 2 * fft.halfSpectrumColumns();
+        BufferedImage spectrumImage = spectrumImage(complexData, width, height, stride);
+        FrequencyFilters.apply(complexData, height, width, FrequencyFilters.highPass(height, width));
+        fft.realInverse(complexData, true);
+        return new BufferedImage[] {spectrumImage, resultImage(complexData, width, height, stride)};
+    }
+
+    // Espectro centralizado em escala logarítmica, a partir do meio espectro guardado.
+    // log(1 + |X|) é calculado uma vez por bin guardado, junto com o máximo; a escrita da
+    // imagem só normaliza esses valores
+    static BufferedImage spectrumImage(double[] complexData, int width, int height, int stride) {
+        int columns = width / 2 + 1;
+        double[] logMagnitude = new double[height * columns];
+        DoubleAccumulator maxSpectrum = new DoubleAccumulator(Math::max, Double.MIN_VALUE);
+        Parallel.forRange(0, height, Parallel.rowGrain(columns), (from, to) -> {
+            double max = Double.MIN_VALUE;
+            for (int y = from; y < to; y++) {
+                for (int x = 0; x < columns; x++) {
+                    double re = complexData[y*stride + 2*x];
+                    double im = complexData[y*stride + 2*x+1];
                     double magnitude = Math.log(1 + Math.sqrt(re*re + im*im));
-                    
-                    int value = (int)(magnitude * 255 / maxSpectrum);
-                    value = Math.min(255, Math.max(0, value));
-                    spectrumImage.setRGB(shiftedX, shiftedY, (value << 16) | (value << 8) | value);
+                    logMagnitude[y*columns + x] = magnitude;
+                    max = Math.max(max, magnitude);
                 }
             }
+            maxSpectrum.accumulate(max);
+        });
+        return spectrumImage(logMagnitude, maxSpectrum.get(), width, height);
+    }
 
-            // Salva a imagem do espectro de frequência
-            ImageIO.write(spectrumImage, "jpg", new File("spectrum.jpg"));
-
-            // 6. Aplica um filtro passa-alta no domínio da frequência
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    // Calcula a distância do ponto ao centro do espectro
-                    double distanceFromCenter = Math.sqrt(
-                        Math.pow((y - height/2.0), 2) + 
-                        Math.pow((x - width/2.0), 2)
-                    );
-                    
-                    // Filtro passa-alta suave: atenua baixas frequências, realça altas
-                    double radius = Math.sqrt(Math.pow(height/2.0, 2) + Math.pow(width/2.0, 2));
-                    double highPassFactor = 1.0 - Math.exp(-distanceFromCenter * 5.0 / radius);
-                    
-                    // Adiciona um boost extra para frequências altas
-                    if (distanceFromCenter > radius * 0.1) {
-                        highPassFactor *= 2.0;
-                    }
-                    
-                    int realIndex = 2*x;
-                    int imagIndex = 2*x+1;
-                    complexData[y][realIndex] *= highPassFactor;
-                    complexData[y][imagIndex] *= highPassFactor;
+    static BufferedImage spectrumImage(float[] complexData, int width, int height, int stride) {
+        int columns = width / 2 + 1;
+        double[] logMagnitude = new double[height * columns];
+        DoubleAccumulator maxSpectrum = new DoubleAccumulator(Math::max, Double.MIN_VALUE);
+        Parallel.forRange(0, height, Parallel.rowGrain(columns), (from, to) -> {
+            double max = Double.MIN_VALUE;
+            for (int y = from; y < to; y++) {
+                for (int x = 0; x < columns; x++) {
+                    double re = complexData[y*stride + 2*x];
+                    double im = complexData[y*stride + 2*x+1];
+                    double magnitude = Math.log(1 + Math.sqrt(re*re + im*im));
+                    logMagnitude[y*columns + x] = magnitude;
+                    max = Math.max(max, magnitude);
                 }
             }
+            maxSpectrum.accumulate(max);
+        });
+        return spectrumImage(logMagnitude, maxSpectrum.get(), width, height);
+    }
 
-            // 7. Aplica a FFT inversa para voltar ao domínio espacial (imagem)
-            fft.complexInverse(complexData, true);
+    private static BufferedImage spectrumImage(double[] logMagnitude, double maxSpectrum, int width, int height) {
+        int columns = width / 2 + 1;
+        PixelBuffer spectrum = new PixelBuffer(width, height, 1);
+        byte[] plane = spectrum.plane(0);
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (from, to) -> {
+            for (int shiftedY = from; shiftedY < to; shiftedY++) {
+                // Shift para centralizar o espectro (frequências baixas no centro)
+                int y = (shiftedY + height - height/2) % height;
+                for (int shiftedX = 0; shiftedX < width; shiftedX++) {
+                    int x = (shiftedX + width - width/2) % width;
+                    // Colunas da metade não guardada: |X[y][x]| = |X[(h-y)%h][w-x]|
+                    int sourceY = x < columns ? y : (height - y) % height;
+                    int sourceX = x < columns ? x : width - x;
+                    int value = (int)(logMagnitude[sourceY*columns + sourceX] * 255 / maxSpectrum);
+                    value = Math.min(255, Math.max(0, value));
+                    plane[shiftedY*width + shiftedX] = (byte) value;
+                }
+            }
+        });
+        return spectrum.toImage(BufferedImage.TYPE_BYTE_GRAY);
+    }
 
-            // 8. Constrói a imagem final a partir dos dados complexos (magnitude)
-            BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-            double maxVal = Double.MIN_VALUE;
-            double minVal = Double.MAX_VALUE;
+    // Imagem final normalizada entre a menor e a maior magnitude. A inversa de um espectro
+    // simétrico é real: a magnitude é o valor absoluto, guardado no próprio buffer na mesma
+    // passada que acha o mínimo e o máximo
+    static BufferedImage resultImage(double[] complexData, int width, int height, int stride) {
+        return resultBuffer(complexData, width, height, stride).toImage(BufferedImage.TYPE_BYTE_GRAY);
+    }
 
-            // Encontra os valores máximo e mínimo para normalização
-            for (int y = 0; y < height; y++) {
+    private static PixelBuffer resultBuffer(double[] complexData, int width, int height, int stride) {
+        DoubleAccumulator maxVal = new DoubleAccumulator(Math::max, Double.MIN_VALUE);
+        DoubleAccumulator minVal = new DoubleAccumulator(Math::min, Double.MAX_VALUE);
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (from, to) -> {
+            double max = Double.MIN_VALUE;
+            double min = Double.MAX_VALUE;
+            for (int y = from; y < to; y++) {
+                for (int i = y*stride; i < y*stride + width; i++) {
+                    double magnitude = Math.abs(complexData[i]);
+                    complexData[i] = magnitude;
+                    max = Math.max(max, magnitude);
+                    min = Math.min(min, magnitude);
+                }
+            }
+            maxVal.accumulate(max);
+            minVal.accumulate(min);
+        });
+        double max = maxVal.get();
+        double min = minVal.get();
+        PixelBuffer result = new PixelBuffer(width, height, 1);
+        byte[] plane = result.plane(0);
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (from, to) -> {
+            for (int y = from; y < to; y++) {
                 for (int x = 0; x < width; x++) {
-                    double magnitude = Math.sqrt(
-                        Math.pow(complexData[y][2*x], 2) + 
-                        Math.pow(complexData[y][2*x+1], 2)
-                    );
-                    maxVal = Math.max(maxVal, magnitude);
-                    minVal = Math.min(minVal, magnitude);
+                    plane[y*width + x] = normalize(complexData[y*stride + x], min, max);
                 }
             }
+        });
+        return result;
+    }
 
-            // Normaliza e cria a imagem final
-            for (int y = 0; y < height; y++) {
+    static BufferedImage resultImage(float[] complexData, int width, int height, int stride) {
+        DoubleAccumulator maxVal = new DoubleAccumulator(Math::max, Double.MIN_VALUE);
+        DoubleAccumulator minVal = new DoubleAccumulator(Math::min, Double.MAX_VALUE);
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (from, to) -> {
+            double max = Double.MIN_VALUE;
+            double min = Double.MAX_VALUE;
+            for (int y = from; y < to; y++) {
+                for (int i = y*stride; i < y*stride + width; i++) {
+                    float magnitude = Math.abs(complexData[i]);
+                    complexData[i] = magnitude;
+                    max = Math.max(max, magnitude);
+                    min = Math.min(min, magnitude);
+                }
+            }
+            maxVal.accumulate(max);
+            minVal.accumulate(min);
+        });
+        double max = maxVal.get();
+        double min = minVal.get();
+        PixelBuffer result = new PixelBuffer(width, height, 1);
+        byte[] plane = result.plane(0);
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (from, to) -> {
+            for (int y = from; y < to; y++) {
                 for (int x = 0; x < width; x++) {
-                    double magnitude = Math.sqrt(
-                        Math.pow(complexData[y][2*x], 2) + 
-                        Math.pow(complexData[y][2*x+1], 2)
-                    );
-                    double normalized = (magnitude - minVal) / (maxVal - minVal);
-                    int value = (int)(normalized * 255);
-                    value = Math.min(255, Math.max(0, value));
-                    resultImage.setRGB(x, y, (value << 16) | (value << 8) | value);
+                    plane[y*width + x] = normalize(complexData[y*stride + x], min, max);
                 }
             }
+        });
+        return result.toImage(BufferedImage.TYPE_BYTE_GRAY);
+    }
 
-            // Salva a imagem final com bordas realçadas
-            ImageIO.write(resultImage, "jpg", new File("fourier_enhanced.jpg"));
-            System.out.println("Processamento FFT concluído. Resultados salvos em:");
-            System.out.println("- spectrum.jpg (espectro de frequência)");
-            System.out.println("- fourier_enhanced.jpg (imagem com bordas realçadas)");
-
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    private static byte normalize(double magnitude, double minVal, double maxVal) {
+        double normalized = (magnitude - minVal) / (maxVal - minVal);
+        int value = (int)(normalized * 255);
+        return (byte) Math.min(255, Math.max(0, value));
     }
 
-    // Classe auxiliar para FFT 2D (implementação recursiva)
-    private static class DoubleFFT_2D {
-        private int height;
-        private int width;
+    // Classe auxiliar para FFT 2D. Cada dimensão usa a FFT1D adequada ao seu tamanho
+    // (radix-2, base mista ou Bluestein), então imagens de qualquer resolução são
+    // transformadas corretamente, sem preencher até a próxima potência de 2.
+    // Os planos (tabelas) vêm do FFTPlanCache: criar vários DoubleFFT_2D do mesmo tamanho
+    // não recalcula nada, e o mesmo objeto pode ser usado por várias threads.
+    static class DoubleFFT_2D {
+        private final FFTPlan forward;
+        private final FFTPlan inverse;
 
         public DoubleFFT_2D(int height, int width) {
-            this.height = height;
-            this.width = width;
+            this.forward = FFTPlanCache.get(height, width, FFTPlan.Direction.FORWARD, FFTPlan.Precision.DOUBLE);
+            this.inverse = FFTPlanCache.get(height, width, FFTPlan.Direction.INVERSE, FFTPlan.Precision.DOUBLE);
         }
 
-        // Aplica FFT nas linhas e colunas
-        public void complexForward(double[][] data) {
-            // FFT nas linhas
-            for (int y = 0; y < height; y++) {
-                fft1d(data[y], width, false);
-            }
+        // Colunas do meio espectro de uma imagem real: bins 0..width/2 de cada linha
+        public int halfSpectrumColumns() {
+            return forward.halfSpectrumColumns();
+        }
 
-            // FFT nas colunas
-            double[] temp = new double[2 * height];
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    temp[2*y] = data[y][2*x];
-                    temp[2*y+1] = data[y][2*x+1];
-                }
-                fft1d(temp, height, false);
-                for (int y = 0; y < height; y++) {
-                    data[y][2*x] = temp[2*y];
-                    data[y][2*x+1] = temp[2*y+1];
-                }
-            }
+        // FFT de dados reais, in-place, num buffer contínuo com linhas de 2 * halfSpectrumColumns()
+        // doubles, cada uma com os width pixels nas primeiras posições; na saída guarda os bins
+        // 0..width/2 (re, im intercalados). Os demais bins são conj(X[(h-y)%h][width-x]).
+        public void realForward(double[] data) {
+            forward.real(data, false);
+        }
+
+        // Inversa de realForward: volta do meio espectro para os width valores reais de cada linha
+        public void realInverse(double[] data, boolean scale) {
+            inverse.real(data, scale);
+        }
+
+        // Aplica FFT nas linhas e colunas (buffer contínuo, linha y em data[y * 2 * width])
+        public void complexForward(double[] data) {
+            forward.complex(data, false);
         }
 
         // Aplica FFT inversa nas linhas e colunas
-        public void complexInverse(double[][] data, boolean scale) {
-            // IFFT nas linhas
-            for (int y = 0; y < height; y++) {
-                fft1d(data[y], width, true);
-            }
+        public void complexInverse(double[] data, boolean scale) {
+            inverse.complex(data, scale);
+        }
+    }
 
-            // IFFT nas colunas
-            double[] temp = new double[2 * height];
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    temp[2*y] = data[y][2*x];
-                    temp[2*y+1] = data[y][2*x+1];
-                }
-                fft1d(temp, height, true);
-                for (int y = 0; y < height; y++) {
-                    data[y][2*x] = temp[2*y];
-                    data[y][2*x+1] = temp[2*y+1];
-                }
-            }
+    // Equivalente ao DoubleFFT_2D com buffers float (planos de precisão FLOAT)
+    static class FloatFFT_2D {
+        private final FFTPlan forward;
+        private final FFTPlan inverse;
 
-            // Normaliza se necessário
-            if (scale) {
-                double factor = 1.0 / (width * height);
-                for (int y = 0; y < height; y++) {
-                    for (int x = 0; x < 2*width; x++) {
-                        data[y][x] *= factor;
-                    }
-                }
-            }
+        public FloatFFT_2D(int height, int width) {
+            this.forward = FFTPlanCache.get(height, width, FFTPlan.Direction.FORWARD, FFTPlan.Precision.FLOAT);
+            this.inverse = FFTPlanCache.get(height, width, FFTPlan.Direction.INVERSE, FFTPlan.Precision.FLOAT);
         }
 
-        // Implementação recursiva da FFT 1D (Cooley-Tukey)
-        private void fft1d(double[] data, int n, boolean inverse) {
-            if (n <= 1) return;
-
-            // Divide em pares e ímpares
-            double[] even = new double[n];
-            double[] odd = new double[n];
-            for (int i = 0; i < n/2; i++) {
-                even[2*i] = data[2*i];
-                even[2*i+1] = data[2*i+1];
-                odd[2*i] = data[2*(i + n/2)];
-                odd[2*i+1] = data[2*(i + n/2)+1];
-            }
+        public int halfSpectrumColumns() {
+            return forward.halfSpectrumColumns();
+        }
 
-            // Recursão
-            fft1d(even, n/2, inverse);
-            fft1d(odd, n/2, inverse);
-
-            // Combina os resultados
-            double angle = 2 * Math.PI / n * (inverse ? 1 : -1);
-            double wReal = 1;
-            double wImag = 0;
-            double wReal_step = Math.cos(angle);
-            double wImag_step = Math.sin(angle);
-
-            for (int i = 0; i < n/2; i++) {
-                double oddReal = odd[2*i];
-                double oddImag = odd[2*i+1];
-                
-                double temp = wReal * oddReal - wImag * oddImag;
-                oddImag = wReal * oddImag + wImag * oddReal;
-                oddReal = temp;
-
-                data[2*i] = even[2*i] + oddReal;
-                data[2*i+1] = even[2*i+1] + oddImag;
-                data[2*(i + n/2)] = even[2*i] - oddReal;
-                data[2*(i + n/2)+1] = even[2*i+1] - oddImag;
-
-                temp = wReal * wReal_step - wImag * wImag_step;
-                wImag = wReal * wImag_step + wImag * wReal_step;
-                wReal = temp;
-            }
+        public void realForward(float[] data) {
+            forward.real(data, false);
+        }
+
+        public void realInverse(float[] data, boolean scale) {
+            inverse.real(data, scale);
+        }
+
+        public void complexForward(float[] data) {
+            forward.complex(data, false);
+        }
+
+        public void complexInverse(float[] data, boolean scale) {
+            inverse.complex(data, scale);
         }
     }
 }
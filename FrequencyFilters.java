@@ -0,0 +1,264 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Máscaras de filtros no domínio da frequência, sobre o meio espectro da FFT real
+// (height linhas de width/2 + 1 bins, mask[y * columns + x]). Calcular o fator de cada
+// bin custa sqrt/exp/pow; as máscaras ficam num cache LRU chaveado por tipo, tamanho e
+// parâmetros, então jobs repetidos na mesma resolução só pagam a multiplicação.
+// O cache é limitado em máscaras (-Dprocessamento.fft.mascaras=N, padrão 8) e em bytes
+// (-Dprocessamento.fft.mascaras.bytes, padrão 64 MB): uma máscara de 8K (4320x3841) sozinha
+// tem 133 MB, e 8 delas prenderiam 1 GB do heap. Uma máscara maior que o limite é devolvida
+// sem entrar no cache. As máscaras devolvidas são compartilhadas e não devem ser alteradas.
+//
+// Exceto highPass, que reproduz o filtro original do Fourier, a distância de um bin é a
+// distância até a frequência zero: sqrt(x² + min(y, height - y)²).
+public final class FrequencyFilters {
+    private static int capacity = Integer.getInteger("processamento.fft.mascaras", 8);
+    private static long maxBytes = Long.getLong("processamento.fft.mascaras.bytes", 64L << 20);
+    // Soma dos bytes das máscaras em cache, sob o lock de masks
+    private static long bytes;
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static final Map<Key, double[]> masks = new LinkedHashMap<>(16, 0.75f, true);
+
+    private interface Factor {
+        double at(int x, int y);
+    }
+
+    private FrequencyFilters() {
+    }
+
+    // Passa-alta suave do Fourier: 1 - exp(-5d/r), dobrado quando d > 0.1r, com d medido a
+    // partir de (width/2, height/2) e r a distância do centro ao canto
+    public static double[] highPass(int height, int width) {
+        double radius = Math.sqrt(Math.pow(height/2.0, 2) + Math.pow(width/2.0, 2));
+        return mask("passa-alta", height, width, new double[0], (x, y) -> {
+            double distanceFromCenter = Math.sqrt(
+                Math.pow((y - height/2.0), 2) +
+                Math.pow((x - width/2.0), 2)
+            );
+            double highPassFactor = 1.0 - Math.exp(-distanceFromCenter * 5.0 / radius);
+            if (distanceFromCenter > radius * 0.1) {
+                highPassFactor *= 2.0;
+            }
+            return highPassFactor;
+        });
+    }
+
+    // Passa-baixa ideal: mantém os bins com distância até cutoff
+    public static double[] lowPass(int height, int width, double cutoff) {
+        return mask("passa-baixa", height, width, new double[] {cutoff},
+                (x, y) -> distance(x, y, height) <= cutoff ? 1.0 : 0.0);
+    }
+
+    // Passa-faixa ideal: mantém os bins com distância entre low e high
+    public static double[] bandPass(int height, int width, double low, double high) {
+        if (low > high) {
+            throw new IllegalArgumentException("Faixa inválida: " + low + " > " + high);
+        }
+        return mask("passa-faixa", height, width, new double[] {low, high}, (x, y) -> {
+            double d = distance(x, y, height);
+            return d >= low && d <= high ? 1.0 : 0.0;
+        });
+    }
+
+    // Butterworth de ordem order: 1 / (1 + (d/cutoff)^2n) no passa-baixa e o complemento
+    // (1 / (1 + (cutoff/d)^2n)) no passa-alta
+    public static double[] butterworth(int height, int width, double cutoff, int order, boolean highPass) {
+        if (cutoff <= 0 || order < 1) {
+            throw new IllegalArgumentException("Butterworth inválido: corte " + cutoff + ", ordem " + order);
+        }
+        return mask(highPass ? "butterworth-alta" : "butterworth-baixa", height, width,
+                new double[] {cutoff, order}, (x, y) -> {
+                    double ratio = Math.pow(distance(x, y, height) / cutoff, 2 * order);
+                    return highPass ? ratio / (1 + ratio) : 1 / (1 + ratio);
+                });
+    }
+
+    // Gaussiano: exp(-d²/2σ²) no passa-baixa e 1 menos isso no passa-alta
+    public static double[] gaussian(int height, int width, double sigma, boolean highPass) {
+        if (sigma <= 0) {
+            throw new IllegalArgumentException("Sigma inválido: " + sigma);
+        }
+        double twoSigmaSquared = 2 * sigma * sigma;
+        return mask(highPass ? "gaussiano-alta" : "gaussiano-baixa", height, width, new double[] {sigma},
+                (x, y) -> {
+                    double d = distance(x, y, height);
+                    double low = Math.exp(-d * d / twoSigmaSquared);
+                    return highPass ? 1 - low : low;
+                });
+    }
+
+    private static double distance(int x, int y, int height) {
+        int dy = Math.min(y, height - y);
+        return Math.sqrt((double) x * x + (double) dy * dy);
+    }
+
+    // Multiplica cada bin do meio espectro (linhas de 2 * columns doubles) pela máscara
+    public static void apply(double[] data, int height, int width, double[] mask) {
+        int columns = width / 2 + 1;
+        int stride = 2 * columns;
+        checkMask(mask, height, columns);
+        Parallel.forRange(0, height, Parallel.rowGrain(columns), (from, to) -> {
+            for (int y = from; y < to; y++) {
+                for (int x = 0, m = y * columns, i = y * stride; x < columns; x++, m++, i += 2) {
+                    data[i] *= mask[m];
+                    data[i + 1] *= mask[m];
+                }
+            }
+        });
+    }
+
+    public static void apply(float[] data, int height, int width, double[] mask) {
+        int columns = width / 2 + 1;
+        int stride = 2 * columns;
+        checkMask(mask, height, columns);
+        Parallel.forRange(0, height, Parallel.rowGrain(columns), (from, to) -> {
+            for (int y = from; y < to; y++) {
+                for (int x = 0, m = y * columns, i = y * stride; x < columns; x++, m++, i += 2) {
+                    data[i] *= mask[m];
+                    data[i + 1] *= mask[m];
+                }
+            }
+        });
+    }
+
+    private static void checkMask(double[] mask, int height, int columns) {
+        if (mask.length != height * columns) {
+            throw new IllegalArgumentException("Máscara de " + mask.length + " bins para um espectro de "
+                    + height + "x" + columns);
+        }
+    }
+
+    private static double[] mask(String type, int height, int width, double[] params, Factor factor) {
+        Key key = new Key(type, height, width, params);
+        synchronized (masks) {
+            double[] mask = masks.get(key);
+            if (mask != null) {
+                hits.incrementAndGet();
+                return mask;
+            }
+        }
+        misses.incrementAndGet();
+        // Calculada fora do lock: duas threads podem calcular a mesma máscara ao mesmo
+        // tempo, mas o resultado é o mesmo e só uma fica no cache
+        int columns = width / 2 + 1;
+        double[] mask = new double[height * columns];
+        Parallel.forRange(0, height, Parallel.rowGrain(columns), (from, to) -> {
+            for (int y = from; y < to; y++) {
+                for (int x = 0; x < columns; x++) {
+                    mask[y * columns + x] = factor.at(x, y);
+                }
+            }
+        });
+        synchronized (masks) {
+            double[] existing = masks.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (size(mask) <= maxBytes) {
+                masks.put(key, mask);
+                bytes += size(mask);
+                trim();
+            }
+        }
+        return mask;
+    }
+
+    private static long size(double[] mask) {
+        return (long) mask.length * Double.BYTES;
+    }
+
+    // Tira as usadas há mais tempo até caber nos dois limites; chamado com o lock de masks
+    private static void trim() {
+        Iterator<double[]> eldest = masks.values().iterator();
+        while ((masks.size() > capacity || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= size(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    public static void setCapacity(int maskCount) {
+        if (maskCount < 1) {
+            throw new IllegalArgumentException("Capacidade inválida: " + maskCount);
+        }
+        synchronized (masks) {
+            capacity = maskCount;
+            trim();
+        }
+    }
+
+    public static void setMaxBytes(long maxMaskBytes) {
+        if (maxMaskBytes < 0) {
+            throw new IllegalArgumentException("Limite de bytes inválido: " + maxMaskBytes);
+        }
+        synchronized (masks) {
+            maxBytes = maxMaskBytes;
+            trim();
+        }
+    }
+
+    public static void clear() {
+        synchronized (masks) {
+            masks.clear();
+            bytes = 0;
+        }
+    }
+
+    public static long hits() {
+        return hits.get();
+    }
+
+    public static long misses() {
+        return misses.get();
+    }
+
+    public static void resetStats() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public static String stats() {
+        int size;
+        long cached;
+        synchronized (masks) {
+            size = masks.size();
+            cached = bytes;
+        }
+        return String.format("máscaras: %d em cache (%.1f MB), %d acertos, %d faltas", size, cached / (double) (1 << 20),
+                hits.get(), misses.get());
+    }
+
+    private static final class Key {
+        private final String type;
+        private final int height;
+        private final int width;
+        private final double[] params;
+
+        Key(String type, int height, int width, double[] params) {
+            this.type = type;
+            this.height = height;
+            this.width = width;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return height == key.height && width == key.width && type.equals(key.type)
+                    && Arrays.equals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((type.hashCode() * 31 + height) * 31 + width) * 31 + Arrays.hashCode(params);
+        }
+    }
+}
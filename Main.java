@@ -4,15 +4,36 @@ import java.io.IOException;
 
 import javax.imageio.ImageIO;
 
+import com.example.ImageClassifier;
 
+// Flamengo.jpg -> cinza -> binária (Otsu) -> vetor do classificador, tudo em memória pelo
+// Pipeline; "java Main salvar" também grava grayscale.png e binary.png no caminho.
+// Compila com as classes do Maven no classpath (target/classes e o jar do google-genai).
 public class Main {
     public static void main(String[] args) {
         try {
-            BufferedImage binaryImage = ImageIO.read(new File("binary.jpg"));
-            
-          
+            BufferedImage originalImage = ImageIO.read(new File("Flamengo.jpg"));
+            if (originalImage == null) {
+                System.err.println("Erro: Não foi possível carregar a imagem Flamengo.jpg");
+                return;
+            }
+            boolean save = args.length > 0 && args[0].equals("salvar");
+
+            Pipeline pipeline = Pipeline.create().grayscale();
+            if (save) {
+                pipeline.save(new File("grayscale.png"));
+            }
+            pipeline.binary();
+            if (save) {
+                pipeline.save(new File("binary.png"));
+            }
+            PixelBuffer binaryImage = pipeline.run(originalImage);
+
+            ImageClassifier.classifyHistogram(Pipeline.grayHistogram(binaryImage));
+            ImageClassifier.saveIndex();
+            System.out.println(ImageClassifier.cache().stats());
         } catch (IOException e) {
-            System.err.println("Erro ao ler o arquivo de imagem 'binary.jpg'.");
+            System.err.println("Erro ao ler ou gravar as imagens.");
             e.printStackTrace();
         }
     }
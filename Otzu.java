@@ -1,6 +1,9 @@
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import javax.imageio.ImageIO;
 
 public class Otzu {
@@ -24,95 +27,512 @@ public class Otzu {
             }
             System.out.println("Imagem carregada com sucesso! Dimensões: " + originalImage.getWidth() + "x" + originalImage.getHeight());
             
-            // Converter para escala de cinza
-            BufferedImage grayImage = convertToGrayscale(originalImage);
-            
-            // Aplicar limiarização de Otsu
-            BufferedImage binaryImage = convertToBinary(grayImage);
-            
-            // Salvar as imagens resultantes
-            ImageIO.write(grayImage, "jpg", new File("grayscale.jpg"));
-            ImageIO.write(binaryImage, "jpg", new File("binary.jpg"));
+            // Tons de cinza, histograma e limiar de Otsu numa passada só; a imagem em
+            // cinza só é montada porque vai ser salva. "java Otzu adaptativo [bloco]" usa um
+            // limiar por região, para imagens com iluminação desigual
+            // "java Otzu niveis [classes]" segmenta em 3 a 5 classes e salva niveis.png
+            if (args.length > 0 && args[0].equals("niveis")) {
+                int classes = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+                MultiLevel levels = multiLevel(originalImage, classes);
+                System.out.println("Limiares: " + Arrays.toString(levels.getThresholds()));
+                ImageIO.write(levels.posterizedImage(), "png", new File("niveis.png"));
+                return;
+            }
+            Binarization result;
+            if (args.length > 0 && args[0].equals("adaptativo")) {
+                int tileSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TILE;
+                result = binarizeAdaptive(originalImage, tileSize);
+            } else {
+                result = binarize(originalImage);
+            }
+
+            // Salvar as imagens resultantes. Com -Dprocessamento.formato=raw elas vão sem
+            // perdas para grayscale.raw e binary.raw (RawRaster), que o Fourier mapeia direto
+            if ("raw".equals(System.getProperty("processamento.formato"))) {
+                RawRaster.write(new File("grayscale.raw"), result.grayBuffer());
+                RawRaster.write(new File("binary.raw"), result.binaryBuffer());
+                return;
+            }
+            ImageIO.write(result.grayImage(), "jpg", new File("grayscale.jpg"));
+            ImageIO.write(result.binaryImage(), "jpg", new File("binary.jpg"));
             
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
     
-    private static BufferedImage convertToGrayscale(BufferedImage original) {
+    // Resultado do Otsu multinível: os limiares e, por pixel, a classe (0 = mais escura).
+    // A imagem posterizada pinta cada classe com um nível de cinza igualmente espaçado
+    public static class MultiLevel {
+        private final int width;
+        private final int height;
+        private final byte[] luma;
+        private final int[] thresholds;
+        private final byte[] classOf = new byte[256];
+
+        MultiLevel(int width, int height, byte[] luma, int[] thresholds) {
+            this.width = width;
+            this.height = height;
+            this.luma = luma;
+            this.thresholds = thresholds;
+            // Classe de cada cinza lido de volta, para rotular cada pixel com uma consulta
+            for (int v = 0, label = 0; v < 256; v++) {
+                while (label < thresholds.length && v > thresholds[label]) {
+                    label++;
+                }
+                classOf[v] = (byte) label;
+            }
+        }
+
+        public int[] getThresholds() {
+            return thresholds.clone();
+        }
+
+        public int getClasses() {
+            return thresholds.length + 1;
+        }
+
+        // Classe de cada pixel, linha a linha
+        public byte[] labels() {
+            byte[] labels = new byte[luma.length];
+            Parallel.forRange(0, height, Parallel.rowGrain(width), (y0, y1) -> {
+                for (int i = y0 * width; i < y1 * width; i++) {
+                    labels[i] = classOf[GRAY_ROUND_TRIP[luma[i] & 0xff]];
+                }
+            });
+            return labels;
+        }
+
+        public BufferedImage posterizedImage() {
+            int top = thresholds.length;
+            byte[] levels = new byte[256];
+            for (int v = 0; v < 256; v++) {
+                levels[v] = (byte) (classOf[GRAY_ROUND_TRIP[v]] * 255 / top);
+            }
+            PixelBuffer output = new PixelBuffer(width, height, 1);
+            byte[] plane = output.plane(0);
+            Parallel.forRange(0, height, Parallel.rowGrain(width), (y0, y1) -> {
+                for (int i = y0 * width; i < y1 * width; i++) {
+                    plane[i] = levels[luma[i] & 0xff];
+                }
+            });
+            return output.toImage(BufferedImage.TYPE_BYTE_GRAY);
+        }
+    }
+
+    // Lado padrão dos blocos do limiar adaptativo
+    static final int DEFAULT_TILE = 64;
+
+    // Blocos com diferença entre o maior e o menor cinza abaixo disso são considerados
+    // uniformes (fundo liso): o Otsu deles só separaria ruído, então usam o limiar global
+    static final int MIN_TILE_CONTRAST = 24;
+
+    // Resultado da binarização: o limiar (global), a imagem binária e o plano de cinza (luminância
+    // de cada pixel, linha a linha), a partir do qual a imagem em cinza é montada só se pedida
+    public static class Binarization {
+        private final int width;
+        private final int height;
+        private final byte[] luma;
+        private final int threshold;
+        private final BufferedImage binary;
+        private BufferedImage gray;
+
+        Binarization(int width, int height, byte[] luma, int threshold, BufferedImage binary) {
+            this.width = width;
+            this.height = height;
+            this.luma = luma;
+            this.threshold = threshold;
+            this.binary = binary;
+        }
+
+        public int getThreshold() {
+            return threshold;
+        }
+
+        public BufferedImage binaryImage() {
+            return binary;
+        }
+
+        // Mesma imagem TYPE_BYTE_GRAY que o setRGB pixel a pixel gravava
+        public synchronized BufferedImage grayImage() {
+            if (gray == null) {
+                gray = new PixelBuffer(width, height, new byte[][] {luma}).toImage(BufferedImage.TYPE_BYTE_GRAY);
+            }
+            return gray;
+        }
+
+        // Cinza lido de volta da imagem em tons de cinza, um byte por pixel (para o RawRaster)
+        public PixelBuffer grayBuffer() {
+            byte[] plane = new byte[luma.length];
+            for (int i = 0; i < plane.length; i++) {
+                plane[i] = (byte) GRAY_ROUND_TRIP[luma[i] & 0xff];
+            }
+            return new PixelBuffer(width, height, new byte[][] {plane});
+        }
+
+        // Imagem binária com 0 ou 255 em cada byte, desempacotada dos bits
+        public PixelBuffer binaryBuffer() {
+            MultiPixelPackedSampleModel model = (MultiPixelPackedSampleModel) binary.getRaster().getSampleModel();
+            int scanline = model.getScanlineStride();
+            byte[] bits = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+            byte[] plane = new byte[width * height];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if ((bits[y * scanline + (x >> 3)] & (0x80 >> (x & 7))) != 0) {
+                        plane[y * width + x] = (byte) 255;
+                    }
+                }
+            }
+            return new PixelBuffer(width, height, new byte[][] {plane});
+        }
+    }
+
+    // Cinza que se lê de volta de uma imagem TYPE_BYTE_GRAY depois de gravar v com setRGB
+    // (a conversão passa pelo espaço linear); era esse valor que o histograma contava
+    private static final int[] GRAY_ROUND_TRIP = new int[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            GRAY_ROUND_TRIP[v] = PixelBuffer.decodeGray(PixelBuffer.encodeGray(v));
+        }
+    }
+
+    // Luminância e histograma numa passada por linhas, em paralelo (um histograma por faixa,
+    // somados no fim), e depois a imagem binária escrita direto como bits no raster
+    public static Binarization binarize(BufferedImage original) {
         int width = original.getWidth();
         int height = original.getHeight();
-        BufferedImage grayscale = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-        
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                int rgb = original.getRGB(i, j);
-                int r = (rgb >> 16) & 0xff;
-                int g = (rgb >> 8) & 0xff;
-                int b = rgb & 0xff;
-                
-                // Conversão para tons de cinza usando média ponderada
-                int gray = (int) (0.299 * r + 0.587 * g + 0.114 * b);
-                grayscale.setRGB(i, j, (gray << 16) | (gray << 8) | gray);
-            }
-        }
-        return grayscale;
+        byte[] luma = new byte[width * height];
+        int[] histogram = luminance(PixelBuffer.fromImage(original), luma);
+        int threshold = otsuThreshold(histogram);
+        return new Binarization(width, height, luma, threshold, binaryImage(luma, width, height, threshold));
     }
-    
-    private static BufferedImage convertToBinary(BufferedImage grayscale) {
-        int width = grayscale.getWidth();
-        int height = grayscale.getHeight();
-        
-        // Calcular histograma
+
+    // Só a imagem em tons de cinza (a mesma do grayscale.jpg), sem histograma nem limiar
+    public static BufferedImage grayscale(BufferedImage original) {
+        int width = original.getWidth();
+        int height = original.getHeight();
+        PixelBuffer pixels = PixelBuffer.fromImage(original);
+        byte[] luma = new byte[width * height];
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (y0, y1) -> luminance(pixels, luma, y0, y1, null));
+        return new PixelBuffer(width, height, new byte[][] {luma}).toImage(BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    // Cinza lido de volta da imagem em tons de cinza (o que getRGB devolveria dela), num
+    // buffer de um canal: é o valor que o histograma conta e que o limiar compara
+    static PixelBuffer grayBuffer(PixelBuffer pixels) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
+        byte[] gray = new byte[width * height];
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (y0, y1) -> {
+            luminance(pixels, gray, y0, y1, null);
+            for (int i = y0 * width; i < y1 * width; i++) {
+                gray[i] = (byte) GRAY_ROUND_TRIP[gray[i] & 0xff];
+            }
+        });
+        return new PixelBuffer(width, height, new byte[][] {gray});
+    }
+
+    // Luminância de todos os pixels em luma e o histograma do cinza lido de volta
+    static int[] luminance(PixelBuffer pixels, byte[] luma) {
         int[] histogram = new int[256];
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                int gray = grayscale.getRGB(i, j) & 0xff;
-                histogram[gray]++;
+        Parallel.forRange(0, pixels.getHeight(), Parallel.rowGrain(pixels.getWidth()), (y0, y1) -> {
+            int[] local = new int[256];
+            luminance(pixels, luma, y0, y1, local);
+            synchronized (histogram) {
+                for (int i = 0; i < 256; i++) {
+                    histogram[i] += local[i];
+                }
+            }
+        });
+        return histogram;
+    }
+
+    // Segmentação em classes de cinza pelo Otsu multinível: os classes - 1 limiares que
+    // maximizam a variância entre classes. Com as tabelas acumuladas P (pixels) e S (soma
+    // dos cinzas), cada classe [u, v] contribui S(u,v)² / P(u,v), lido de uma tabela H[u][v]
+    // em O(1); a combinação ótima sai de uma programação dinâmica sobre o fim de cada classe,
+    // O(classes · 256²), em vez de testar as O(256^(classes-1)) combinações
+    public static MultiLevel multiLevel(BufferedImage original, int classes) {
+        int width = original.getWidth();
+        int height = original.getHeight();
+        byte[] luma = new byte[width * height];
+        int[] histogram = luminance(PixelBuffer.fromImage(original), luma);
+        return new MultiLevel(width, height, luma, multiLevelThresholds(histogram, classes));
+    }
+
+    // Limiares (crescentes) do Otsu multinível: a classe i vai de thresholds[i-1] + 1 até
+    // thresholds[i], como no limiar binário (cinza > limiar fica na classe de cima)
+    static int[] multiLevelThresholds(int[] histogram, int classes) {
+        if (classes < 2 || classes > 256) {
+            throw new IllegalArgumentException("Número de classes inválido: " + classes);
+        }
+        double[][] between = classVariances(histogram);
+
+        // best[m][v]: maior soma com as m + 1 primeiras classes cobrindo os cinzas 0..v;
+        // from[m][v]: onde termina a classe anterior nessa solução
+        double[][] best = new double[classes][256];
+        int[][] from = new int[classes][256];
+        for (int v = 0; v < 256; v++) {
+            best[0][v] = between[0][v];
+        }
+        for (int m = 1; m < classes; m++) {
+            for (int v = 0; v < 256; v++) {
+                best[m][v] = Double.NEGATIVE_INFINITY;
+                for (int u = m - 1; u < v; u++) {
+                    double total = best[m - 1][u] + between[u + 1][v];
+                    if (total > best[m][v]) {
+                        best[m][v] = total;
+                        from[m][v] = u;
+                    }
+                }
+            }
+        }
+
+        int[] thresholds = new int[classes - 1];
+        int end = 255;
+        for (int m = classes - 1; m > 0; m--) {
+            end = from[m][end];
+            thresholds[m - 1] = end;
+        }
+        return thresholds;
+    }
+
+    // H[u][v] = S(u,v)² / P(u,v) para a classe de cinzas u..v, a partir das tabelas
+    // acumuladas P[i] = soma de histogram[0..i-1] e S[i] = soma de j * histogram[j]; classes
+    // vazias contribuem 0
+    static double[][] classVariances(int[] histogram) {
+        long[] p = new long[257];
+        long[] sum = new long[257];
+        for (int i = 0; i < 256; i++) {
+            p[i + 1] = p[i] + histogram[i];
+            sum[i + 1] = sum[i] + (long) i * histogram[i];
+        }
+        double[][] between = new double[256][256];
+        for (int u = 0; u < 256; u++) {
+            for (int v = u; v < 256; v++) {
+                long count = p[v + 1] - p[u];
+                if (count > 0) {
+                    double s = sum[v + 1] - sum[u];
+                    between[u][v] = s * s / count;
+                }
+            }
+        }
+        return between;
+    }
+
+    // Otsu adaptativo: um histograma por bloco tileSize x tileSize, calculado na mesma
+    // passada da luminância, e um limiar de Otsu por bloco. O limiar de cada pixel é a
+    // interpolação bilinear entre os limiares dos centros dos quatro blocos mais próximos
+    // (nas bordas, o do bloco mais próximo). O custo por pixel não depende do tamanho do
+    // bloco: além da passada da luminância, são 256 contas por bloco e duas interpolações
+    // por pixel. O limiar global (histogramas somados) fica em getThreshold
+    public static Binarization binarizeAdaptive(BufferedImage original, int tileSize) {
+        if (tileSize < 8) {
+            throw new IllegalArgumentException("Bloco muito pequeno para um histograma: " + tileSize);
+        }
+        int width = original.getWidth();
+        int height = original.getHeight();
+        PixelBuffer pixels = PixelBuffer.fromImage(original);
+        byte[] luma = new byte[width * height];
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        int[][] histograms = new int[tilesX * tilesY][256];
+
+        // Faixas de linhas de blocos: cada histograma é preenchido por uma faixa só
+        Parallel.forRange(0, tilesY, 1, (ty0, ty1) -> {
+            for (int ty = ty0; ty < ty1; ty++) {
+                int y1 = Math.min(height, (ty + 1) * tileSize);
+                for (int y = ty * tileSize; y < y1; y++) {
+                    luminance(pixels, luma, y, y + 1, null);
+                    int row = y * width;
+                    for (int tx = 0; tx < tilesX; tx++) {
+                        int[] histogram = histograms[ty * tilesX + tx];
+                        int x1 = Math.min(width, (tx + 1) * tileSize);
+                        for (int x = tx * tileSize; x < x1; x++) {
+                            histogram[GRAY_ROUND_TRIP[luma[row + x] & 0xff]]++;
+                        }
+                    }
+                }
+            }
+        });
+
+        int[] global = new int[256];
+        for (int[] histogram : histograms) {
+            for (int i = 0; i < 256; i++) {
+                global[i] += histogram[i];
             }
         }
-        int total = width * height;
-        
+        int globalThreshold = otsuThreshold(global);
+        double[] thresholds = new double[histograms.length];
+        for (int t = 0; t < histograms.length; t++) {
+            int[] histogram = histograms[t];
+            int low = 0;
+            while (histogram[low] == 0) {
+                low++;
+            }
+            int high = 255;
+            while (histogram[high] == 0) {
+                high--;
+            }
+            thresholds[t] = high - low < MIN_TILE_CONTRAST ? globalThreshold : otsuThreshold(histogram);
+        }
+
+        // Posição de cada coluna entre os centros de blocos: bloco da esquerda e peso do da direita
+        int[] left = new int[width];
+        double[] weight = new double[width];
+        interpolation(width, tileSize, tilesX, left, weight);
+        int[] top = new int[height];
+        double[] weightY = new double[height];
+        interpolation(height, tileSize, tilesY, top, weightY);
+
+        BufferedImage binary = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        MultiPixelPackedSampleModel model = (MultiPixelPackedSampleModel) binary.getRaster().getSampleModel();
+        int scanline = model.getScanlineStride();
+        byte[] bits = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (y0, y1) -> {
+            double[] column = new double[tilesX];
+            int[] limit = new int[width];
+            for (int y = y0; y < y1; y++) {
+                // Limiares interpolados na vertical para esta linha, um por coluna de blocos
+                int t0 = top[y] * tilesX;
+                int t1 = Math.min(top[y] + 1, tilesY - 1) * tilesX;
+                double wy = weightY[y];
+                for (int tx = 0; tx < tilesX; tx++) {
+                    column[tx] = (1 - wy) * thresholds[t0 + tx] + wy * thresholds[t1 + tx];
+                }
+                // Para cinza inteiro, cinza > limiar equivale a cinza > floor(limiar)
+                for (int x = 0; x < width; x++) {
+                    int tx = left[x];
+                    double wx = weight[x];
+                    limit[x] = (int) ((1 - wx) * column[tx] + wx * column[Math.min(tx + 1, tilesX - 1)]);
+                }
+                int src = y * width;
+                int dst = y * scanline;
+                for (int x = 0; x < width; x += 8) {
+                    int packed = 0;
+                    int end = Math.min(8, width - x);
+                    for (int bit = 0; bit < end; bit++) {
+                        // Bit de sinal de limite - cinza: 1 quando o cinza passa do limite
+                        int gray = GRAY_ROUND_TRIP[luma[src + x + bit] & 0xff];
+                        packed |= ((limit[x + bit] - gray) >>> 31) << (7 - bit);
+                    }
+                    bits[dst + (x >> 3)] = (byte) packed;
+                }
+            }
+        });
+        return new Binarization(width, height, luma, globalThreshold, binary);
+    }
+
+    // Para cada posição 0..length-1, o bloco cujo centro está à esquerda (ou acima) e o peso
+    // do bloco seguinte; antes do primeiro centro e depois do último o peso é 0 ou 1
+    private static void interpolation(int length, int tileSize, int tiles, int[] first, double[] weight) {
+        for (int i = 0; i < length; i++) {
+            double position = (i + 0.5) / tileSize - 0.5;
+            if (position <= 0) {
+                first[i] = 0;
+                weight[i] = 0;
+            } else if (position >= tiles - 1) {
+                first[i] = tiles - 1;
+                weight[i] = 0;
+            } else {
+                first[i] = (int) position;
+                weight[i] = position - first[i];
+            }
+        }
+    }
+
+    // Conversão para tons de cinza usando média ponderada, nas linhas y0..y1-1, contando o
+    // cinza lido de volta no histograma (se houver)
+    private static void luminance(PixelBuffer pixels, byte[] luma, int y0, int y1, int[] histogram) {
+        int width = pixels.getWidth();
+        byte[] r = pixels.plane(0);
+        byte[] g = pixels.getChannels() == 1 ? r : pixels.plane(1);
+        byte[] b = pixels.getChannels() == 1 ? r : pixels.plane(2);
+        for (int i = y0 * width; i < y1 * width; i++) {
+            int gray = (int) (0.299 * (r[i] & 0xff) + 0.587 * (g[i] & 0xff) + 0.114 * (b[i] & 0xff));
+            luma[i] = (byte) gray;
+            if (histogram != null) {
+                histogram[GRAY_ROUND_TRIP[gray]]++;
+            }
+        }
+    }
+
+    // Limiar ótimo pelo método de Otsu (maior variância entre classes), nas mesmas contas em
+    // float da versão original para dar o mesmo limiar
+    static int otsuThreshold(int[] histogram) {
+        long[] counts = new long[256];
+        for (int i = 0; i < 256; i++) {
+            counts[i] = histogram[i];
+        }
+        return otsuThreshold(counts);
+    }
+
+    // As contagens e os produtos ficam em long e só depois viram float: em int, i * histogram[i]
+    // e wB * wF estouravam a partir de algumas dezenas de megapixels (e o total, acima de
+    // 2^31 pixels). Sem estouro, cada termo é o mesmo float da versão original
+    static int otsuThreshold(long[] histogram) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+
         float sum = 0;
         for (int i = 0; i < 256; i++) {
             sum += i * histogram[i];
         }
-        
+
         float sumB = 0;
-        int wB = 0;
-        int wF = 0;
+        long wB = 0;
+        long wF = 0;
         float maxVariance = 0;
         int threshold = 0;
-        
-        // Calcular limiar ótimo usando método de Otsu
+
         for (int i = 0; i < 256; i++) {
             wB += histogram[i];
             if (wB == 0) continue;
-            
+
             wF = total - wB;
             if (wF == 0) break;
-            
+
             sumB += i * histogram[i];
             float mB = sumB / wB;
             float mF = (sum - sumB) / wF;
-            
+
             float variance = wB * wF * (mB - mF) * (mB - mF);
-            
+
             if (variance > maxVariance) {
                 maxVariance = variance;
                 threshold = i;
             }
         }
-        
-        // Aplicar limiarização
+        return threshold;
+    }
+
+    // Imagem TYPE_BYTE_BINARY (1 bit por pixel, 8 pixels por byte, o mais à esquerda no bit
+    // mais alto): branco onde o cinza lido de volta passa do limiar. Cada faixa escreve só
+    // os bytes das suas linhas
+    static BufferedImage binaryImage(byte[] luma, int width, int height, int threshold) {
         BufferedImage binary = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                int gray = grayscale.getRGB(i, j) & 0xff;
-                binary.setRGB(i, j, gray > threshold ? 0xFFFFFF : 0);
+        MultiPixelPackedSampleModel model = (MultiPixelPackedSampleModel) binary.getRaster().getSampleModel();
+        int scanline = model.getScanlineStride();
+        byte[] bits = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        Parallel.forRange(0, height, Parallel.rowGrain(width), (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int src = y * width;
+                int dst = y * scanline;
+                for (int x = 0; x < width; x += 8) {
+                    int packed = 0;
+                    int end = Math.min(8, width - x);
+                    for (int bit = 0; bit < end; bit++) {
+                        if (GRAY_ROUND_TRIP[luma[src + x + bit] & 0xff] > threshold) {
+                            packed |= 0x80 >> bit;
+                        }
+                    }
+                    bits[dst + (x >> 3)] = (byte) packed;
+                }
             }
-        }
-        
+        });
         return binary;
     }
 }
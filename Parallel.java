@@ -0,0 +1,127 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Execução em faixas (bandas de linhas) num ForkJoinPool compartilhado.
+// Cada faixa escreve só nas suas próprias linhas de saída, então o resultado não
+// depende da ordem de execução e é idêntico ao serial.
+// O número de threads vem de -Dprocessamento.threads=N ou de setParallelism.
+public class Parallel {
+    private static int parallelism = Integer.getInteger("processamento.threads",
+            Runtime.getRuntime().availableProcessors());
+    // Pool atual; um pool trocado por setParallelism só é desligado quando a última
+    // chamada que ainda o usa termina
+    private static Shared current;
+    // Threads que pediram para rodar as faixas sem dividir (serial), sem mudar o valor global
+    private static final ThreadLocal<Boolean> SERIAL = new ThreadLocal<>();
+
+    public interface Range {
+        void run(int from, int to);
+    }
+
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Número de threads inválido: " + threads);
+        }
+        if (threads != parallelism && current != null) {
+            current.retired = true;
+            if (current.users == 0) {
+                current.pool.shutdown();
+            }
+            current = null;
+        }
+        parallelism = threads;
+    }
+
+    // Roda body com as faixas em série nesta thread (e só nela): para quem já paraleliza por
+    // fora, como o BatchRunner com uma imagem por thread
+    public static void serial(Runnable body) {
+        Boolean previous = SERIAL.get();
+        SERIAL.set(Boolean.TRUE);
+        try {
+            body.run();
+        } finally {
+            SERIAL.set(previous);
+        }
+    }
+
+    public static synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    private static synchronized Shared acquire() {
+        if (current == null) {
+            current = new Shared(new ForkJoinPool(parallelism));
+        }
+        current.users++;
+        return current;
+    }
+
+    private static synchronized void release(Shared shared) {
+        shared.users--;
+        if (shared.retired && shared.users == 0) {
+            shared.pool.shutdown();
+        }
+    }
+
+    // Divide [from, to) em faixas de pelo menos minChunk itens e roda body em cada uma
+    public static void forRange(int from, int to, int minChunk, Range body) {
+        int count = to - from;
+        if (count <= 0) {
+            return;
+        }
+        int threads = getParallelism();
+        if (threads == 1 || count <= minChunk || SERIAL.get() != null) {
+            body.run(from, to);
+            return;
+        }
+        // Algumas faixas a mais que threads para o work-stealing equilibrar a carga
+        int chunk = Math.max(minChunk, (count + threads * 4 - 1) / (threads * 4));
+        Shared shared = acquire();
+        try {
+            shared.pool.invoke(new Band(from, to, chunk, body));
+        } finally {
+            release(shared);
+        }
+    }
+
+    // Tamanho mínimo de faixa (em linhas) para que cada tarefa tenha trabalho suficiente
+    public static int rowGrain(int width) {
+        return Math.max(1, 32768 / Math.max(1, width));
+    }
+
+    private static final class Shared {
+        final ForkJoinPool pool;
+        int users;
+        boolean retired;
+
+        Shared(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+    }
+
+    private static class Band extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final Range body;
+
+        Band(int from, int to, int chunk, Range body) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                body.run(from, to);
+                return;
+            }
+            int mid = from + (to - from) / 2;
+            invokeAll(new Band(from, mid, chunk, body), new Band(mid, to, chunk, body));
+        }
+    }
+}
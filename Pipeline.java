@@ -0,0 +1,170 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+
+// Cadeia de etapas em memória: cada etapa recebe e devolve um PixelBuffer, sem passar por
+// arquivos. Antes o Otzu gravava grayscale.jpg e binary.jpg, o Fourier relia o cinza e o
+// classificador relia a binária, cada passo pagando codificação e decodificação JPEG (que
+// ainda borrava a máscara binária). Gravar em disco virou uma etapa opcional (save).
+//
+//   PixelBuffer mask = Pipeline.create().grayscale().binary().save(new File("binary.png")).run(image);
+//   String vector = ImageClassifier.toVector(Pipeline.grayHistogram(mask));
+//
+// Convenção dos buffers, a mesma do PixelBuffer: cada valor é o que getRGB devolveria da
+// imagem equivalente. grayscale dá o cinza lido de volta do grayscale.jpg em memória e
+// binary dá 0 ou 255, com o mesmo limiar do Otzu.binarize.
+public final class Pipeline {
+    public interface Stage {
+        PixelBuffer apply(PixelBuffer input);
+    }
+
+    // Tipo de imagem "o mesmo da entrada", resolvido em run
+    private static final int INPUT_TYPE = -1;
+
+    private final List<Step> steps = new ArrayList<>();
+    private int imageType = INPUT_TYPE;
+
+    private Pipeline() {
+    }
+
+    public static Pipeline create() {
+        return new Pipeline();
+    }
+
+    // Etapa qualquer; imageType é o tipo de imagem com que a saída dela é gravada
+    public Pipeline then(Stage stage, int imageType) {
+        steps.add(new Step(stage, null, imageType));
+        this.imageType = imageType;
+        return this;
+    }
+
+    // Tons de cinza do Otzu (0.299R + 0.587G + 0.114B)
+    public Pipeline grayscale() {
+        return then(Otzu::grayBuffer, BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    // Limiar de Otsu sobre o cinza (calculado antes, se a entrada ainda for colorida)
+    public Pipeline binary() {
+        return then(Pipeline::binarize, BufferedImage.TYPE_BYTE_BINARY);
+    }
+
+    // Realce passa-alta do Fourier, sobre o cinza
+    public Pipeline enhance() {
+        return then(input -> Fourier.enhance(input.getChannels() == 1 ? input : Otzu.grayBuffer(input)),
+                BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    // Convolução do FilterEngine com denominador = soma do kernel (filtros do PassaBaixa)
+    public Pipeline convolve(int[][] kernel) {
+        int denominator = FilterEngine.kernelSum(kernel);
+        return then(input -> FilterEngine.convolve(input, kernel, denominator), imageType);
+    }
+
+    // Um dos mapas de borda do PassaAlta (FilterEngine.SOBEL, LAPLACIAN ou GRADIENT)
+    public Pipeline edges(int map) {
+        return then(input -> {
+            FilterEngine.EdgeMaps maps = FilterEngine.edges(input, FilterService.SOBEL_X, FilterService.SOBEL_Y,
+                    FilterService.LAPLACIAN, FilterService.TOLERANCE, map, true, false);
+            return map == FilterEngine.SOBEL ? maps.sobel : map == FilterEngine.LAPLACIAN ? maps.laplacian
+                    : maps.gradient;
+        }, imageType);
+    }
+
+    // Grava o resultado da etapa anterior (ou a entrada, se for a primeira) no formato da
+    // extensão do arquivo, sem interromper a cadeia
+    public Pipeline save(File file) {
+        String name = file.getName();
+        String format = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        steps.add(new Step(null, (buffer, type) -> {
+            try {
+                if (!ImageIO.write(toImage(buffer, type), format, file)) {
+                    throw new IOException("Sem writer para " + format);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, imageType));
+        return this;
+    }
+
+    public PixelBuffer run(BufferedImage input) throws IOException {
+        return run(PixelBuffer.fromImage(input), input.getType());
+    }
+
+    // inputType é o tipo usado para gravar buffers que não mudaram de tipo (como a entrada
+    // de um filtro colorido); os erros de gravação voltam como IOException
+    public PixelBuffer run(PixelBuffer input, int inputType) throws IOException {
+        PixelBuffer current = input;
+        try {
+            for (Step step : steps) {
+                int type = step.imageType == INPUT_TYPE ? inputType : step.imageType;
+                if (step.stage != null) {
+                    current = step.stage.apply(current);
+                } else {
+                    step.sink.accept(current, type);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return current;
+    }
+
+    // Histograma de (int) (0.299R + 0.587G + 0.114B), a conta do ImageClassifier.toVector
+    // sobre getRGB, direto dos planos
+    public static int[] grayHistogram(PixelBuffer buffer) {
+        int n = buffer.getWidth() * buffer.getHeight();
+        byte[] r = buffer.plane(0);
+        byte[] g = buffer.getChannels() == 1 ? r : buffer.plane(1);
+        byte[] b = buffer.getChannels() == 1 ? r : buffer.plane(2);
+        int[] histogram = new int[256];
+        for (int i = 0; i < n; i++) {
+            histogram[(int) (0.299 * (r[i] & 0xff) + 0.587 * (g[i] & 0xff) + 0.114 * (b[i] & 0xff))]++;
+        }
+        return histogram;
+    }
+
+    // Imagem do tipo pedido; a binária vai direto para os bits do TYPE_BYTE_BINARY
+    public static BufferedImage toImage(PixelBuffer buffer, int type) {
+        if (type == BufferedImage.TYPE_BYTE_BINARY && buffer.getChannels() == 1) {
+            return Otzu.binaryImage(buffer.plane(0), buffer.getWidth(), buffer.getHeight(), 127);
+        }
+        return buffer.toImage(type);
+    }
+
+    private static PixelBuffer binarize(PixelBuffer input) {
+        PixelBuffer gray = input.getChannels() == 1 ? input : Otzu.grayBuffer(input);
+        byte[] plane = gray.plane(0);
+        int[] histogram = new int[256];
+        for (byte value : plane) {
+            histogram[value & 0xff]++;
+        }
+        int threshold = Otzu.otsuThreshold(histogram);
+        byte[] binary = new byte[plane.length];
+        for (int i = 0; i < plane.length; i++) {
+            binary[i] = (plane[i] & 0xff) > threshold ? (byte) 255 : 0;
+        }
+        return new PixelBuffer(gray.getWidth(), gray.getHeight(), new byte[][] {binary});
+    }
+
+    private interface Sink {
+        void accept(PixelBuffer buffer, int imageType);
+    }
+
+    private static final class Step {
+        final Stage stage;
+        final Sink sink;
+        final int imageType;
+
+        Step(Stage stage, Sink sink, int imageType) {
+            this.stage = stage;
+            this.sink = sink;
+            this.imageType = imageType;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+// Imagem em planos separados de bytes (R, G, B ou um único plano de cinza).
+// O raster é desempacotado uma única vez e os filtros trabalham direto nos arrays,
+// sem passar por getRGB/setRGB a cada pixel.
+public class PixelBuffer {
+    private final int width;
+    private final int height;
+    private final int channels;
+    private final byte[][] planes;
+
+    // Tabelas de conversão do TYPE_BYTE_GRAY: o getRGB/setRGB dessas imagens passa pelo
+    // espaço de cor linear, então guardamos a mesma conversão para manter os resultados
+    private static final int[] GRAY_DECODE = new int[256];
+    private static final byte[] GRAY_ENCODE = new byte[256];
+
+    static {
+        ColorModel cm = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY).getColorModel();
+        for (int v = 0; v < 256; v++) {
+            GRAY_DECODE[v] = cm.getRGB(v) & 0xff;
+            GRAY_ENCODE[v] = ((byte[]) cm.getDataElements((v << 16) | (v << 8) | v, null))[0];
+        }
+    }
+
+    public PixelBuffer(int width, int height, int channels) {
+        this(width, height, new byte[channels][width * height]);
+    }
+
+    public PixelBuffer(int width, int height, byte[][] planes) {
+        this.width = width;
+        this.height = height;
+        this.channels = planes.length;
+        this.planes = planes;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    // Plano do canal c (0 = R, 1 = G, 2 = B; ou 0 = cinza), linha a linha
+    public byte[] plane(int c) {
+        return planes[c];
+    }
+
+    // Valor (0 a 255) que getRGB devolveria para um byte cru de uma imagem TYPE_BYTE_GRAY
+    static int decodeGray(int raw) {
+        return GRAY_DECODE[raw & 0xff];
+    }
+
+    // Byte cru que setRGB gravaria numa imagem TYPE_BYTE_GRAY para o cinza v
+    static byte encodeGray(int v) {
+        return GRAY_ENCODE[v];
+    }
+
+    public static PixelBuffer fromImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Raster raster = image.getRaster();
+        DataBuffer db = raster.getDataBuffer();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_BYTE_GRAY: {
+                PixelBuffer out = new PixelBuffer(width, height, 1);
+                unpackBytes(raster, (DataBufferByte) db, out, new int[] {0}, true);
+                return out;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                PixelBuffer out = new PixelBuffer(width, height, 3);
+                // Os bandOffsets do raster já estão na ordem R, G, B
+                unpackBytes(raster, (DataBufferByte) db, out, new int[] {0, 1, 2}, false);
+                return out;
+            }
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_BGR: {
+                PixelBuffer out = new PixelBuffer(width, height, 3);
+                unpackInts(raster, (DataBufferInt) db, out);
+                return out;
+            }
+            default: {
+                // Tipos pouco comuns: getRGB em bloco, uma linha por vez
+                PixelBuffer out = new PixelBuffer(width, height, 3);
+                int[] row = new int[width];
+                byte[] r = out.planes[0], g = out.planes[1], b = out.planes[2];
+                for (int y = 0; y < height; y++) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    int base = y * width;
+                    for (int x = 0; x < width; x++) {
+                        int rgb = row[x];
+                        r[base + x] = (byte) (rgb >> 16);
+                        g[base + x] = (byte) (rgb >> 8);
+                        b[base + x] = (byte) rgb;
+                    }
+                }
+                return out;
+            }
+        }
+    }
+
+    private static void unpackBytes(Raster raster, DataBufferByte db, PixelBuffer out, int[] bands, boolean gray) {
+        ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+        byte[] data = db.getData();
+        int scanline = sm.getScanlineStride();
+        int pixelStride = sm.getPixelStride();
+        int[] bandOffsets = sm.getBandOffsets();
+        int origin = db.getOffset()
+                - raster.getSampleModelTranslateY() * scanline
+                - raster.getSampleModelTranslateX() * pixelStride;
+        int width = out.width;
+
+        for (int c = 0; c < bands.length; c++) {
+            byte[] plane = out.planes[c];
+            int bandOffset = bandOffsets[bands[c]];
+            for (int y = 0; y < out.height; y++) {
+                int src = origin + y * scanline + bandOffset;
+                int dst = y * width;
+                if (gray) {
+                    for (int x = 0; x < width; x++, src += pixelStride) {
+                        plane[dst + x] = (byte) GRAY_DECODE[data[src] & 0xff];
+                    }
+                } else {
+                    for (int x = 0; x < width; x++, src += pixelStride) {
+                        plane[dst + x] = data[src];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void unpackInts(Raster raster, DataBufferInt db, PixelBuffer out) {
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int[] data = db.getData();
+        int scanline = sm.getScanlineStride();
+        int[] shifts = sm.getBitOffsets();
+        int origin = db.getOffset()
+                - raster.getSampleModelTranslateY() * scanline
+                - raster.getSampleModelTranslateX();
+        int shiftR = shifts[0], shiftG = shifts[1], shiftB = shifts[2];
+        byte[] r = out.planes[0], g = out.planes[1], b = out.planes[2];
+        int width = out.width;
+
+        for (int y = 0; y < out.height; y++) {
+            int src = origin + y * scanline;
+            int dst = y * width;
+            for (int x = 0; x < width; x++) {
+                int p = data[src + x];
+                r[dst + x] = (byte) (p >> shiftR);
+                g[dst + x] = (byte) (p >> shiftG);
+                b[dst + x] = (byte) (p >> shiftB);
+            }
+        }
+    }
+
+    // Escreve os planos de volta numa imagem nova do tipo pedido. Um buffer de um
+    // canal vira cinza (R = G = B) quando o tipo de destino é colorido.
+    public BufferedImage toImage(int type) {
+        if (type == BufferedImage.TYPE_CUSTOM) {
+            type = BufferedImage.TYPE_INT_RGB;
+        }
+        BufferedImage output = new BufferedImage(width, height, type);
+        WritableRaster raster = output.getRaster();
+        DataBuffer db = raster.getDataBuffer();
+        byte[] r = planes[0];
+        byte[] g = channels == 1 ? r : planes[1];
+        byte[] b = channels == 1 ? r : planes[2];
+        int n = width * height;
+
+        switch (type) {
+            case BufferedImage.TYPE_BYTE_GRAY:
+                if (channels == 1) {
+                    byte[] data = ((DataBufferByte) db).getData();
+                    for (int i = 0; i < n; i++) {
+                        data[i] = GRAY_ENCODE[r[i] & 0xff];
+                    }
+                    return output;
+                }
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                byte[] data = ((DataBufferByte) db).getData();
+                for (int i = 0, j = 0; i < n; i++, j += 3) {
+                    data[j] = b[i];
+                    data[j + 1] = g[i];
+                    data[j + 2] = r[i];
+                }
+                return output;
+            }
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                int[] data = ((DataBufferInt) db).getData();
+                for (int i = 0; i < n; i++) {
+                    data[i] = 0xff000000 | ((r[i] & 0xff) << 16) | ((g[i] & 0xff) << 8) | (b[i] & 0xff);
+                }
+                return output;
+            }
+            default:
+                break;
+        }
+
+        // Demais tipos: setRGB em bloco, uma linha por vez
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            int base = y * width;
+            for (int x = 0; x < width; x++) {
+                int i = base + x;
+                row[x] = ((r[i] & 0xff) << 16) | ((g[i] & 0xff) << 8) | (b[i] & 0xff);
+            }
+            output.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return output;
+    }
+}
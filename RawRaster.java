@@ -0,0 +1,215 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Formato bruto para passar imagens e espectros entre processos sem codificar nem
+// decodificar: um cabeçalho de 64 bytes e os dados sem compressão, plano por plano, linha
+// por linha, em little-endian. Os arquivos são lidos e escritos por FileChannel.map, então
+// quem lê começa direto no buffer mapeado (as páginas só são lidas do disco quando tocadas).
+//
+// Cabeçalho (ints): "PDRW", versão, tipo, largura, altura, planos, colunas, flags; o resto
+// até 64 bytes é reservado. Colunas é o número de elementos por linha: a largura, ou
+// largura / 2 + 1 no meio espectro de uma FFT real (flag HALF_SPECTRUM), no mesmo layout
+// de linhas do Fourier (re, im intercalados).
+//
+// Um arquivo mapeado tem até 2 GB (limite do MappedByteBuffer).
+public final class RawRaster {
+    public enum Kind {
+        U8(1), F32(4), F64(8), CF32(8), CF64(16);
+
+        final int bytes;
+
+        Kind(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    static final int HEADER = 64;
+    static final int HALF_SPECTRUM = 1;
+    private static final int MAGIC = 0x57524450; // "PDRW" em little-endian
+    private static final int VERSION = 1;
+
+    private final Kind kind;
+    private final int width;
+    private final int height;
+    private final int planes;
+    private final int columns;
+    private final int flags;
+    private final ByteBuffer data;
+
+    private RawRaster(Kind kind, int width, int height, int planes, int columns, int flags, ByteBuffer data) {
+        this.kind = kind;
+        this.width = width;
+        this.height = height;
+        this.planes = planes;
+        this.columns = columns;
+        this.flags = flags;
+        this.data = data;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPlanes() {
+        return planes;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public boolean isHalfSpectrum() {
+        return (flags & HALF_SPECTRUM) != 0;
+    }
+
+    // Mapeia o arquivo (só leitura) e confere o cabeçalho
+    public static RawRaster open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                throw new IOException("Tamanho inválido para um arquivo bruto: " + size + " bytes em " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Não é um arquivo bruto (versão " + VERSION + "): " + file);
+            }
+            int type = buffer.getInt(8);
+            if (type < 0 || type >= Kind.values().length) {
+                throw new IOException("Tipo desconhecido " + type + " em " + file);
+            }
+            Kind kind = Kind.values()[type];
+            int width = buffer.getInt(12);
+            int height = buffer.getInt(16);
+            int planes = buffer.getInt(20);
+            int columns = buffer.getInt(24);
+            int flags = buffer.getInt(28);
+            long expected = HEADER + (long) planes * height * columns * kind.bytes;
+            if (expected != size) {
+                throw new IOException("Arquivo bruto truncado: " + size + " bytes, esperados " + expected + " em " + file);
+            }
+            buffer.position(HEADER);
+            ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            return new RawRaster(kind, width, height, planes, columns, flags, data);
+        }
+    }
+
+    // Plano p como buffer somente leitura (posição 0, little-endian), sem cópia
+    public ByteBuffer plane(int p) {
+        int planeBytes = height * columns * kind.bytes;
+        ByteBuffer view = data.duplicate();
+        view.position(p * planeBytes);
+        view.limit((p + 1) * planeBytes);
+        return view.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Cópia dos planos de 8 bits num PixelBuffer
+    public PixelBuffer toPixelBuffer() {
+        requireKind(Kind.U8);
+        byte[][] copies = new byte[planes][width * height];
+        for (int p = 0; p < planes; p++) {
+            plane(p).get(copies[p]);
+        }
+        return new PixelBuffer(width, height, copies);
+    }
+
+    // Meio espectro no layout do Fourier (height linhas de 2 * columns doubles)
+    public double[] readSpectrum() {
+        requireSpectrum();
+        double[] spectrum = new double[height * 2 * columns];
+        if (kind == Kind.CF64) {
+            plane(0).asDoubleBuffer().get(spectrum);
+        } else {
+            FloatBuffer values = plane(0).asFloatBuffer();
+            for (int i = 0; i < spectrum.length; i++) {
+                spectrum[i] = values.get(i);
+            }
+        }
+        return spectrum;
+    }
+
+    public float[] readSpectrumFloat() {
+        requireSpectrum();
+        float[] spectrum = new float[height * 2 * columns];
+        if (kind == Kind.CF32) {
+            plane(0).asFloatBuffer().get(spectrum);
+        } else {
+            DoubleBuffer values = plane(0).asDoubleBuffer();
+            for (int i = 0; i < spectrum.length; i++) {
+                spectrum[i] = (float) values.get(i);
+            }
+        }
+        return spectrum;
+    }
+
+    private void requireKind(Kind expected) {
+        if (kind != expected) {
+            throw new IllegalStateException("Arquivo bruto do tipo " + kind + " lido como " + expected);
+        }
+    }
+
+    private void requireSpectrum() {
+        if (!isHalfSpectrum() || (kind != Kind.CF32 && kind != Kind.CF64)) {
+            throw new IllegalStateException("Arquivo bruto do tipo " + kind + " não é um meio espectro");
+        }
+    }
+
+    // Planos de 8 bits de um PixelBuffer
+    public static void write(File file, PixelBuffer pixels) throws IOException {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
+        ByteBuffer out = create(file, Kind.U8, width, height, pixels.getChannels(), width, 0);
+        for (int p = 0; p < pixels.getChannels(); p++) {
+            out.put(pixels.plane(p), 0, width * height);
+        }
+    }
+
+    // Meio espectro da FFT real de uma imagem width x height, no layout do Fourier
+    // (stride = 2 * (width / 2 + 1)), em double (CF64) ou float (CF32)
+    public static void writeSpectrum(File file, double[] spectrum, int width, int height) throws IOException {
+        int columns = width / 2 + 1;
+        ByteBuffer out = create(file, Kind.CF64, width, height, 1, columns, HALF_SPECTRUM);
+        out.asDoubleBuffer().put(spectrum, 0, height * 2 * columns);
+    }
+
+    public static void writeSpectrum(File file, float[] spectrum, int width, int height) throws IOException {
+        int columns = width / 2 + 1;
+        ByteBuffer out = create(file, Kind.CF32, width, height, 1, columns, HALF_SPECTRUM);
+        out.asFloatBuffer().put(spectrum, 0, height * 2 * columns);
+    }
+
+    // Cria o arquivo no tamanho final, grava o cabeçalho e devolve a área de dados mapeada
+    private static ByteBuffer create(File file, Kind kind, int width, int height, int planes, int columns,
+            int flags) throws IOException {
+        long size = HEADER + (long) planes * height * columns * kind.bytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Imagem grande demais para um arquivo bruto: " + size + " bytes");
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            raf.setLength(size);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(kind.ordinal()).putInt(width).putInt(height)
+                    .putInt(planes).putInt(columns).putInt(flags);
+            for (int i = 32; i < HEADER; i += 4) {
+                buffer.putInt(0);
+            }
+            return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
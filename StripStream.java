@@ -0,0 +1,382 @@
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Vector;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+// Processamento em faixas de linhas para imagens maiores que o heap. A entrada é lida uma
+// faixa por vez pelo ImageReader (setSourceRegion) e a saída é uma imagem "preguiçosa" cujas
+// faixas só são calculadas quando o ImageWriter pede; só a faixa atual (mais a margem do
+// kernel) fica na memória, então o pico depende da largura e da altura da faixa, não da
+// altura da imagem. A altura vem de -Dprocessamento.faixa=linhas (padrão 256).
+//
+//   java StripStream otsu entrada saida.png
+//   java StripStream media|binomial|gauss|disco N entrada saida.tif
+//
+// N é o lado do kernel (N x N) para todos; o disco é o inscrito nesse quadrado (raio N/2),
+// então N tem de ser ímpar.
+//
+// Formatos: TIFF lê cada faixa direto das suas strips; PNG e JPEG são sequenciais e cada
+// faixa decodifica o arquivo desde o começo (o PNG até o fim), então com eles vale usar
+// faixas altas. A saída tem de ser PNG ou TIFF, cujos writers pedem as linhas de cima para
+// baixo; o JPEG pede a imagem inteira de uma vez e o BMP grava de baixo para cima.
+public final class StripStream {
+    static final int DEFAULT_STRIP = Integer.getInteger("processamento.faixa", 256);
+
+    private StripStream() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("otsu")) {
+            int threshold = otsu(new File(args[1]), new File(args[2]), DEFAULT_STRIP);
+            System.out.println("Limiar: " + threshold);
+            return;
+        }
+        if (args.length == 4) {
+            int size = Integer.parseInt(args[1]);
+            int[][] kernel = kernel(args[0], size);
+            if (kernel != null) {
+                convolve(new File(args[2]), new File(args[3]), kernel, FilterEngine.kernelSum(kernel), DEFAULT_STRIP);
+                return;
+            }
+        }
+        System.out.println("Uso: java StripStream otsu entrada saida");
+        System.out.println("     java StripStream media|binomial|gauss|disco N entrada saida  (N = lado do kernel)");
+    }
+
+    private static int[][] kernel(String name, int size) {
+        switch (name) {
+            case "media":
+                return FilterEngine.boxKernel(size);
+            case "binomial":
+                return FilterEngine.binomialKernel(size);
+            case "gauss":
+                return FilterEngine.gaussianKernel(size, size / 6.0);
+            case "disco":
+                if (size % 2 == 0) {
+                    throw new IllegalArgumentException("Disco precisa de tamanho ímpar: " + size);
+                }
+                return FilterEngine.diskKernel(size / 2);
+            default:
+                return null;
+        }
+    }
+
+    // Convolução em faixas: para as linhas y0..y1-1 lê também as size/2 linhas de cada lado,
+    // convolui a faixa inteira e fica só com as linhas do meio. Cada linha de saída vê as
+    // mesmas linhas de entrada que na imagem inteira, então o resultado é o mesmo do
+    // FilterEngine.convolve em memória (inclusive a borda preta)
+    public static void convolve(File input, File output, int[][] kernel, int denominator, int stripRows)
+            throws IOException {
+        int margin = kernel.length / 2;
+        try (StripReader reader = new StripReader(input)) {
+            int width = reader.getWidth();
+            int height = reader.getHeight();
+            write(new StripImage(width, height, stripRows, (y0, y1) -> {
+                int from = Math.max(0, y0 - margin);
+                int to = Math.min(height, y1 + margin);
+                BufferedImage band = reader.read(from, to);
+                PixelBuffer filtered = FilterEngine.convolve(PixelBuffer.fromImage(band), kernel, denominator);
+                return rows(filtered, y0 - from, y1 - from).toImage(band.getType());
+            }), output);
+        }
+    }
+
+    // Otsu em duas passadas: a primeira só soma o histograma faixa por faixa e a segunda
+    // lê tudo de novo e grava a imagem binária (TYPE_BYTE_BINARY, como no Otzu) com o limiar
+    public static int otsu(File input, File output, int stripRows) throws IOException {
+        try (StripReader reader = new StripReader(input)) {
+            int width = reader.getWidth();
+            int height = reader.getHeight();
+            long[] histogram = new long[256];
+            for (int y0 = 0; y0 < height; y0 += stripRows) {
+                int y1 = Math.min(height, y0 + stripRows);
+                PixelBuffer band = PixelBuffer.fromImage(reader.read(y0, y1));
+                int[] counts = Otzu.luminance(band, new byte[width * (y1 - y0)]);
+                for (int i = 0; i < 256; i++) {
+                    histogram[i] += counts[i];
+                }
+            }
+            int threshold = Otzu.otsuThreshold(histogram);
+            write(new StripImage(width, height, stripRows, (y0, y1) -> {
+                byte[] luma = new byte[width * (y1 - y0)];
+                Otzu.luminance(PixelBuffer.fromImage(reader.read(y0, y1)), luma);
+                return Otzu.binaryImage(luma, width, y1 - y0, threshold);
+            }), output);
+            return threshold;
+        }
+    }
+
+    // Linhas first..last-1 de um buffer, num buffer novo
+    private static PixelBuffer rows(PixelBuffer buffer, int first, int last) {
+        int width = buffer.getWidth();
+        byte[][] planes = new byte[buffer.getChannels()][];
+        for (int c = 0; c < planes.length; c++) {
+            planes[c] = new byte[width * (last - first)];
+            System.arraycopy(buffer.plane(c), first * width, planes[c], 0, planes[c].length);
+        }
+        return new PixelBuffer(width, last - first, planes);
+    }
+
+    // Grava a imagem no formato da extensão de output. Os erros de leitura das faixas saem
+    // do writer como UncheckedIOException e voltam a ser IOException aqui
+    public static void write(RenderedImage image, File output) throws IOException {
+        String name = output.getName();
+        String suffix = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        if (!suffix.equals("png") && !suffix.equals("tif") && !suffix.equals("tiff")) {
+            throw new IllegalArgumentException("Formato ." + suffix + " não é gravado em faixas; use png ou tif");
+        }
+        ImageWriter writer = ImageIO.getImageWritersBySuffix(suffix).next();
+        output.delete();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), writer.getDefaultWriteParam());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Lê faixas de linhas de um arquivo de imagem sem carregá-lo inteiro
+    static final class StripReader implements Closeable {
+        private final ImageInputStream input;
+        private final ImageReader reader;
+        private final int width;
+        private final int height;
+
+        StripReader(File file) throws IOException {
+            input = ImageIO.createImageInputStream(file);
+            if (input == null) {
+                throw new IOException("Não foi possível abrir " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                input.close();
+                throw new IOException("Formato de imagem não reconhecido: " + file);
+            }
+            reader = readers.next();
+            reader.setInput(input, false, true);
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+        }
+
+        int getWidth() {
+            return width;
+        }
+
+        int getHeight() {
+            return height;
+        }
+
+        // Linhas y0..y1-1, na largura toda
+        synchronized BufferedImage read(int y0, int y1) throws IOException {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, y0, width, y1 - y0));
+            return reader.read(0, param);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.dispose();
+            input.close();
+        }
+    }
+
+    // Calcula as linhas y0..y1-1 da saída, numa imagem de y1 - y0 linhas
+    interface Strips {
+        BufferedImage compute(int y0, int y1) throws IOException;
+    }
+
+    // Imagem com um tile por faixa, calculado sob demanda. Só a última faixa calculada fica
+    // guardada: os writers de PNG e TIFF pedem as linhas em ordem, e um pedido que atravessa
+    // duas faixas é montado numa cópia. A primeira faixa é calculada já no construtor, para
+    // saber o ColorModel e o SampleModel da saída
+    static final class StripImage implements RenderedImage {
+        private final int width;
+        private final int height;
+        private final int stripRows;
+        private final Strips strips;
+        private final ColorModel colorModel;
+        private final SampleModel stripModel;
+        private int current = -1;
+        private BufferedImage cached;
+        private Raster currentRaster;
+
+        StripImage(int width, int height, int stripRows, Strips strips) {
+            if (stripRows < 1) {
+                throw new IllegalArgumentException("Faixa inválida: " + stripRows + " linhas");
+            }
+            this.width = width;
+            this.height = height;
+            this.stripRows = Math.min(stripRows, height);
+            this.strips = strips;
+            Raster first = getTile(0, 0);
+            this.colorModel = cached.getColorModel();
+            this.stripModel = first.getSampleModel().createCompatibleSampleModel(width, this.stripRows);
+        }
+
+        @Override
+        public synchronized Raster getTile(int tileX, int tileY) {
+            if (tileY != current) {
+                int y0 = tileY * stripRows;
+                int y1 = Math.min(height, y0 + stripRows);
+                try {
+                    cached = strips.compute(y0, y1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                current = tileY;
+                currentRaster = cached.getRaster().createChild(0, 0, width, y1 - y0, 0, y0, null);
+            }
+            return currentRaster;
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            int firstTile = rect.y / stripRows;
+            int lastTile = (rect.y + rect.height - 1) / stripRows;
+            if (firstTile == lastTile) {
+                Raster tile = getTile(0, firstTile);
+                return tile.createChild(rect.x, rect.y, rect.width, rect.height, rect.x, rect.y, null);
+            }
+            WritableRaster data = Raster.createWritableRaster(
+                    stripModel.createCompatibleSampleModel(rect.width, rect.height), new Point(rect.x, rect.y));
+            for (int tileY = firstTile; tileY <= lastTile; tileY++) {
+                copyRows(getTile(0, tileY), data);
+            }
+            return data;
+        }
+
+        // Copia as linhas em comum, uma por vez com get/setDataElements (o setRect entre
+        // rasters filhos de bytes intercalados perdia parte das linhas)
+        private static void copyRows(Raster tile, WritableRaster target) {
+            Rectangle common = tile.getBounds().intersection(target.getBounds());
+            Object row = null;
+            for (int y = common.y; y < common.y + common.height; y++) {
+                row = tile.getDataElements(common.x, y, common.width, 1, row);
+                target.setDataElements(common.x, y, common.width, 1, row);
+            }
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                raster = Raster.createWritableRaster(stripModel.createCompatibleSampleModel(width, height), null);
+            }
+            Rectangle bounds = raster.getBounds();
+            for (int tileY = bounds.y / stripRows; tileY * stripRows < bounds.y + bounds.height; tileY++) {
+                copyRows(getTile(0, tileY), raster);
+            }
+            return raster;
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return stripModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + stripRows - 1) / stripRows;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return stripRows;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+}
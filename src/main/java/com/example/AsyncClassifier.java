@@ -0,0 +1,294 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Classificação assíncrona de muitos vetores com um só backend (um cliente e um pool de
+// conexões para todas as chamadas). O classifyVector do ImageClassifier espera cada resposta
+// antes de mandar a próxima; aqui várias ficam em voo ao mesmo tempo, com:
+//   - no máximo maxInFlight requisições abertas (quem submete espera quando está cheio);
+//   - um token bucket limitando as requisições por segundo, com rajada de burst;
+//   - novas tentativas com espera exponencial e jitter quando a chamada falha por 429, 5xx ou
+//     erro de conexão (os demais códigos, como chave inválida, falham na hora);
+//   - opcionalmente, até packSize vetores numa mesma requisição (classifyAll).
+//
+// As respostas passam pelo ResponseCache: acertos não ocupam vaga nem token.
+//
+//   try (AsyncClassifier classifier = AsyncClassifier.fromSystemProperties(ImageClassifier.backend())) {
+//       List<CompletableFuture<String>> answers = classifier.classifyAll(vectors);
+//   }
+//
+// Propriedades (fromSystemProperties):
+//   classificador.paralelo    requisições em voo (padrão 8)
+//   classificador.taxa        requisições por segundo (padrão 0 = sem limite)
+//   classificador.rajada      requisições permitidas de uma vez (padrão = paralelo)
+//   classificador.tentativas  novas tentativas depois da primeira falha (padrão 3)
+//   classificador.espera      espera antes da primeira nova tentativa, em ms (padrão 500)
+//   classificador.pacote      vetores por requisição no classifyAll (padrão 1)
+public class AsyncClassifier implements AutoCloseable {
+    static final String PACKED_PROMPT = "i will send to you several vectors of binary images, one per line as "
+            + "\"<n>: <vector>\". You need to find out what each image is and answer one line per image, "
+            + "in the same \"<n>: <answer>\" format:\n";
+
+    private final ModelBackend backend;
+    private final ResponseCache cache;
+    private final String model;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final TokenBucket limiter;
+    private final int maxRetries;
+    private final long backoffMillis;
+    private final int packSize;
+    private final ExecutorService executor;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong unpacked = new AtomicLong();
+
+    // requestsPerSecond <= 0 desliga o limite de taxa; packSize 1 desliga o empacotamento
+    public AsyncClassifier(ModelBackend backend, ResponseCache cache, int maxInFlight, double requestsPerSecond,
+            int burst, int maxRetries, long backoffMillis, int packSize) {
+        this.backend = backend;
+        this.cache = cache;
+        this.model = ImageClassifier.MODEL;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.limiter = requestsPerSecond > 0 ? new TokenBucket(requestsPerSecond, Math.max(1, burst)) : null;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoffMillis = backoffMillis;
+        this.packSize = Math.max(1, packSize);
+        // Uma thread por vaga: a chamada ao backend é bloqueante, então mais threads não ajudariam
+        this.executor = Executors.newFixedThreadPool(this.maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "classificador");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static AsyncClassifier fromSystemProperties(ModelBackend backend) {
+        int parallel = Integer.getInteger("classificador.paralelo", 8);
+        return new AsyncClassifier(backend, ImageClassifier.cache(), parallel,
+                Double.parseDouble(System.getProperty("classificador.taxa", "0")),
+                Integer.getInteger("classificador.rajada", parallel),
+                Integer.getInteger("classificador.tentativas", 3),
+                Long.getLong("classificador.espera", 500),
+                Integer.getInteger("classificador.pacote", 1));
+    }
+
+    // Resposta para um vetor. Bloqueia só enquanto as maxInFlight vagas estiverem ocupadas
+    public CompletableFuture<String> classifyAsync(String vector) throws InterruptedException {
+        String cached = cache.get(model, vector);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return submit(() -> {
+            String response = call(ImageClassifier.PROMPT + vector);
+            cache.put(model, vector, response);
+            return response;
+        });
+    }
+
+    // Respostas na ordem dos vetores. Vetores repetidos viram uma requisição só e, com
+    // packSize > 1, as faltas do cache vão em pacotes de até packSize vetores por requisição
+    public List<CompletableFuture<String>> classifyAll(List<String> vectors) throws InterruptedException {
+        Map<String, CompletableFuture<String>> byVector = new LinkedHashMap<>();
+        List<String> pending = new ArrayList<>();
+        for (String vector : vectors) {
+            if (byVector.containsKey(vector)) {
+                continue;
+            }
+            String cached = cache.get(model, vector);
+            if (cached != null) {
+                byVector.put(vector, CompletableFuture.completedFuture(cached));
+            } else if (packSize == 1) {
+                byVector.put(vector, classifyAsync(vector));
+            } else {
+                byVector.put(vector, new CompletableFuture<>());
+                pending.add(vector);
+            }
+        }
+
+        for (int start = 0; start < pending.size(); start += packSize) {
+            List<String> pack = pending.subList(start, Math.min(pending.size(), start + packSize));
+            CompletableFuture<Map<String, String>> answers = submit(() -> classifyPack(pack));
+            for (String vector : pack) {
+                CompletableFuture<String> target = byVector.get(vector);
+                answers.whenComplete((map, error) -> {
+                    if (error != null) {
+                        target.completeExceptionally(error);
+                    } else {
+                        target.complete(map.get(vector));
+                    }
+                });
+            }
+        }
+
+        List<CompletableFuture<String>> result = new ArrayList<>(vectors.size());
+        for (String vector : vectors) {
+            result.add(byVector.get(vector));
+        }
+        return result;
+    }
+
+    public String stats() {
+        return String.format("classificador: %d requisições, %d novas tentativas, %d falhas, %d respostas "
+                + "de pacote refeitas uma a uma", requests.get(), retries.get(), failures.get(), unpacked.get());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Call<T> call) throws InterruptedException {
+        inFlight.acquire();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.run());
+                } catch (Throwable e) {
+                    failures.incrementAndGet();
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        return future;
+    }
+
+    // Um pacote numa requisição; as linhas "<n>: <resposta>" voltam para os vetores. Se o modelo
+    // pular algum, esse vai sozinho (ainda dentro da mesma vaga)
+    private Map<String, String> classifyPack(List<String> pack) throws Exception {
+        Map<String, String> answers = new HashMap<>();
+        if (pack.size() > 1) {
+            StringBuilder prompt = new StringBuilder(PACKED_PROMPT);
+            for (int i = 0; i < pack.size(); i++) {
+                prompt.append(i + 1).append(": ").append(pack.get(i)).append('\n');
+            }
+            String[] parts = parsePacked(call(prompt.toString()), pack.size());
+            for (int i = 0; i < pack.size(); i++) {
+                if (parts[i] != null) {
+                    answers.put(pack.get(i), parts[i]);
+                }
+            }
+        }
+        for (String vector : pack) {
+            if (!answers.containsKey(vector)) {
+                if (pack.size() > 1) {
+                    unpacked.incrementAndGet();
+                }
+                answers.put(vector, call(ImageClassifier.PROMPT + vector));
+            }
+        }
+        for (Map.Entry<String, String> answer : answers.entrySet()) {
+            cache.put(model, answer.getKey(), answer.getValue());
+        }
+        return answers;
+    }
+
+    // Resposta de cada número de 1 a count; linhas sem "<n>:" continuam a resposta anterior
+    static String[] parsePacked(String response, int count) {
+        String[] parts = new String[count];
+        int current = -1;
+        for (String line : response.split("\n")) {
+            int colon = line.indexOf(':');
+            int number = -1;
+            if (colon > 0) {
+                try {
+                    number = Integer.parseInt(line.substring(0, colon).trim()) - 1;
+                } catch (NumberFormatException e) {
+                    number = -1;
+                }
+            }
+            if (number >= 0 && number < count) {
+                current = number;
+                parts[current] = line.substring(colon + 1).trim();
+            } else if (current >= 0 && !line.trim().isEmpty()) {
+                parts[current] = parts[current] + "\n" + line.trim();
+            }
+        }
+        return parts;
+    }
+
+    // Uma chamada ao backend, com token e novas tentativas. A espera entre tentativas ocupa a
+    // vaga de propósito: um servidor com problemas recebe menos requisições, não mais
+    private String call(String prompt) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            if (limiter != null) {
+                limiter.acquire();
+            }
+            requests.incrementAndGet();
+            try {
+                return backend.generate(model, prompt);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (attempt >= maxRetries || !retryable(e)) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                long wait = backoffMillis << Math.min(attempt, 16);
+                Thread.sleep(wait + ThreadLocalRandom.current().nextLong(wait / 2 + 1));
+            }
+        }
+    }
+
+    // 429, 5xx e falhas de E/S sem resposta (conexão recusada, timeout) podem passar; outro
+    // código HTTP ou uma exceção de programa repetiria igual
+    static boolean retryable(Exception e) {
+        if (e instanceof ModelCallException) {
+            return ((ModelCallException) e).isRetryable();
+        }
+        return e instanceof IOException;
+    }
+
+    private interface Call<T> {
+        T run() throws Exception;
+    }
+
+    // Token bucket por reserva: cada acquire tira um token (o saldo pode ficar negativo) e
+    // dorme o tempo que falta para ele existir, assim as threads saem na ordem em que chegaram
+    static final class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long last = System.nanoTime();
+
+        TokenBucket(double ratePerSecond, int capacity) {
+            this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        void acquire() throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                tokens = Math.min(capacity, tokens + (now - last) * ratePerNano);
+                last = now;
+                tokens -= 1;
+                wait = tokens >= 0 ? 0 : (long) (-tokens / ratePerNano);
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
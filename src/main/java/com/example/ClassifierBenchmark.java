@@ -0,0 +1,97 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Vazão e latência do AsyncClassifier contra o MockModelServer, sem cache:
+//   1. sequencial (uma requisição por vez, como o classifyVector);
+//   2. paralelo (paralelo requisições em voo);
+//   3. paralelo com pacotes de pacote vetores por requisição.
+// A latência de cada vetor vai da submissão até a resposta, então inclui a espera por vaga.
+//
+//   java -cp ... com.example.ClassifierBenchmark [vetores] [latência ms] [taxa de falhas] [paralelo] [pacote]
+public class ClassifierBenchmark {
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        double failureRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.02;
+        int parallel = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int pack = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+
+        List<String> vectors = randomVectors(count, new Random(42));
+        try (MockModelServer server = new MockModelServer(0, 64, latency, failureRate)) {
+            HttpBackend backend = new HttpBackend(server.url(), 30000);
+            System.out.printf("%d vetores, latência do servidor %d ms, falhas %.1f%%%n", count, latency,
+                    failureRate * 100);
+            run("sequencial", backend, vectors, 1, 1);
+            run("paralelo " + parallel, backend, vectors, parallel, 1);
+            run("paralelo " + parallel + ", pacote " + pack, backend, vectors, parallel, pack);
+            System.out.println("servidor: " + server.requests() + " requisições, " + server.failures() + " falhas");
+        }
+    }
+
+    private static void run(String name, ModelBackend backend, List<String> vectors, int parallel, int pack)
+            throws Exception {
+        // Sem memória nem disco: toda consulta ao cache é falta
+        ResponseCache noCache = new ResponseCache(0, null, 0, 0);
+        long[] latencies = new long[vectors.size()];
+        List<CompletableFuture<String>> answers = new ArrayList<>();
+        long start = System.nanoTime();
+        try (AsyncClassifier classifier = new AsyncClassifier(backend, noCache, parallel, 0, parallel, 5, 20, pack)) {
+            if (pack == 1) {
+                for (int i = 0; i < vectors.size(); i++) {
+                    // O início é antes do classifyAsync, que bloqueia esperando vaga
+                    long submitted = System.nanoTime();
+                    answers.add(track(classifier.classifyAsync(vectors.get(i)), latencies, i, submitted));
+                }
+            } else {
+                long submitted = System.nanoTime();
+                List<CompletableFuture<String>> all = classifier.classifyAll(vectors);
+                for (int i = 0; i < all.size(); i++) {
+                    answers.add(track(all.get(i), latencies, i, submitted));
+                }
+            }
+            CompletableFuture.allOf(answers.toArray(new CompletableFuture<?>[0])).join();
+            long elapsed = System.nanoTime() - start;
+
+            int wrong = 0;
+            for (int i = 0; i < vectors.size(); i++) {
+                if (!MockModelServer.label(vectors.get(i)).equals(answers.get(i).join())) {
+                    wrong++;
+                }
+            }
+            Arrays.sort(latencies);
+            System.out.printf("%-28s %8.1f vetores/s  p50 %6.1f ms  p99 %6.1f ms  %s%s%n", name,
+                    vectors.size() / (elapsed / 1e9), percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    classifier.stats(), wrong == 0 ? "" : "  (" + wrong + " respostas erradas)");
+        }
+    }
+
+    private static CompletableFuture<String> track(CompletableFuture<String> answer, long[] latencies, int index,
+            long submitted) {
+        return answer.whenComplete((text, error) -> latencies[index] = System.nanoTime() - submitted);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // Vetores no formato do toVector, de histogramas aleatórios (todos diferentes)
+    private static List<String> randomVectors(int count, Random random) {
+        List<String> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int[] histogram = new int[256];
+            for (int j = 0; j < 64; j++) {
+                histogram[random.nextInt(256)] += 1 + random.nextInt(1000);
+            }
+            histogram[i % 256] += i + 1;
+            vectors.add(ImageClassifier.toVector(histogram));
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,374 @@
+package com.example;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
+
+// Histograma de tons de cinza e codificação do vetor enviado ao modelo, sem o custo do
+// toVector original (getRGB pixel a pixel, coluna por coluna, e 256 String.format).
+//
+// Extração: uma passada por linhas direto no raster. Para imagens cinza e indexadas (como a
+// binária) cada amostra vira o tom por tabela, montada com o próprio ColorModel, então o
+// resultado é o mesmo do getRGB; para RGB de 8 bits os produtos 0.299R, 0.587G e 0.114B vêm
+// de tabelas e são somados na mesma ordem da conta original, dando o mesmo (int). Os outros
+// tipos leem uma linha de getRGB por vez. Com parallel as faixas de linhas vão para o pool
+// comum, cada uma com seu histograma. Os buffers ficam na instância e são reaproveitados, por
+// isso cada thread usa a sua (forThread).
+//
+// Codificações (Encoding):
+//   TEXT       o texto do toVector, caractere por caractere (chaves do cache continuam valendo);
+//   QUANTIZED  inteiros em milésimos, sem casas decimais;
+//   RLE        milésimos com as sequências de tons vazios como 0x<n> (binária: 3 números);
+//   BASE64     256 valores de 16 bits (fração de 65535), little-endian, em base64.
+public class FeatureExtractor {
+    public enum Encoding {
+        TEXT, QUANTIZED, RLE, BASE64
+    }
+
+    static final String TEXT_HEADER = "Histograma de tons de cinza normalizado da imagem: [";
+    static final String QUANTIZED_HEADER = "Histograma de tons de cinza da imagem, em milésimos, tons 0 a 255: [";
+    static final String RLE_HEADER = "Histograma de tons de cinza da imagem, em milésimos, tons 0 a 255 "
+            + "(0x<n> = n tons seguidos sem pixels): [";
+    static final String BASE64_HEADER = "Histograma de tons de cinza da imagem, 256 valores de 16 bits "
+            + "little-endian (fração de 65535) em base64: ";
+
+    // Produtos da conversão para cinza, exatamente os da conta (0.299 * r + 0.587 * g + 0.114 * b)
+    private static final double[] RED = new double[256];
+    private static final double[] GREEN = new double[256];
+    private static final double[] BLUE = new double[256];
+    static {
+        for (int v = 0; v < 256; v++) {
+            RED[v] = 0.299 * v;
+            GREEN[v] = 0.587 * v;
+            BLUE[v] = 0.114 * v;
+        }
+    }
+
+    private static final int PARALLEL_MIN_PIXELS = 1 << 18;
+
+    private static final ThreadLocal<FeatureExtractor> PER_THREAD = ThreadLocal.withInitial(FeatureExtractor::new);
+
+    private final int[] histogram = new int[256];
+    private final StringBuilder text = new StringBuilder(2400);
+    private int[] rgbRow = new int[0];
+    private int[] sampleRow = new int[0];
+
+    public static FeatureExtractor forThread() {
+        return PER_THREAD.get();
+    }
+
+    // Codificação padrão para o que vai ao modelo: -Dclassificador.codificacao=texto|quantizado|rle|base64
+    public static Encoding defaultEncoding() {
+        String name = System.getProperty("classificador.codificacao", "texto").toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "texto":
+                return Encoding.TEXT;
+            case "quantizado":
+                return Encoding.QUANTIZED;
+            case "rle":
+                return Encoding.RLE;
+            case "base64":
+                return Encoding.BASE64;
+            default:
+                throw new IllegalArgumentException("Codificação desconhecida: " + name);
+        }
+    }
+
+    // Histograma de (int) (0.299R + 0.587G + 0.114B) sobre os valores do getRGB. O array
+    // devolvido é da instância e muda na próxima chamada
+    public int[] histogram(BufferedImage image, boolean parallel) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Arrays.fill(histogram, 0);
+        if (!parallel || (long) width * height < PARALLEL_MIN_PIXELS) {
+            countRows(image, 0, height, histogram);
+            return histogram;
+        }
+        int bands = Math.min(height, Runtime.getRuntime().availableProcessors() * 4);
+        int[][] partial = IntStream.range(0, bands).parallel().mapToObj(band -> {
+            int[] local = new int[256];
+            // Cada faixa tem seus buffers; os da instância são só da thread dona
+            new FeatureExtractor().countRows(image, band * height / bands, (band + 1) * height / bands, local);
+            return local;
+        }).toArray(int[][]::new);
+        for (int[] local : partial) {
+            for (int i = 0; i < 256; i++) {
+                histogram[i] += local[i];
+            }
+        }
+        return histogram;
+    }
+
+    public String vector(BufferedImage image, Encoding encoding) {
+        return encode(histogram(image, false), encoding);
+    }
+
+    public String encode(int[] counts, Encoding encoding) {
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        text.setLength(0);
+        switch (encoding) {
+            case TEXT:
+                encodeText(counts, total);
+                break;
+            case QUANTIZED:
+            case RLE:
+                encodeQuantized(counts, total, encoding == Encoding.RLE);
+                break;
+            case BASE64:
+                encodeBase64(counts, total);
+                break;
+            default:
+                throw new IllegalArgumentException(String.valueOf(encoding));
+        }
+        return text.toString();
+    }
+
+    private void countRows(BufferedImage image, int from, int to, int[] counts) {
+        int width = image.getWidth();
+        Raster raster = image.getRaster();
+        ColorModel model = image.getColorModel();
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                if (raster.getDataBuffer() instanceof DataBufferInt && raster.getParent() == null) {
+                    int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                    for (int y = from; y < to; y++) {
+                        for (int i = y * width, end = i + width; i < end; i++) {
+                            int rgb = data[i];
+                            counts[(int) (RED[(rgb >> 16) & 0xff] + GREEN[(rgb >> 8) & 0xff] + BLUE[rgb & 0xff])]++;
+                        }
+                    }
+                    return;
+                }
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                if (raster.getDataBuffer() instanceof DataBufferByte && raster.getParent() == null) {
+                    byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                    for (int y = from; y < to; y++) {
+                        for (int i = y * width * 3, end = i + width * 3; i < end; i += 3) {
+                            counts[(int) (RED[data[i + 2] & 0xff] + GREEN[data[i + 1] & 0xff]
+                                    + BLUE[data[i] & 0xff])]++;
+                        }
+                    }
+                    return;
+                }
+                break;
+            case BufferedImage.TYPE_BYTE_GRAY:
+            case BufferedImage.TYPE_BYTE_BINARY:
+            case BufferedImage.TYPE_BYTE_INDEXED:
+                if (raster.getNumBands() == 1 && raster.getSampleModel().getSampleSize(0) <= 8) {
+                    int[] table = grayTable(model, raster.getSampleModel().getSampleSize(0));
+                    int[] samples = sampleRow(width);
+                    for (int y = from; y < to; y++) {
+                        raster.getSamples(0, y, width, 1, 0, samples);
+                        for (int x = 0; x < width; x++) {
+                            counts[table[samples[x]]]++;
+                        }
+                    }
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        // Demais tipos: uma linha de getRGB por vez, no buffer reaproveitado
+        int[] row = rgbRow(width);
+        for (int y = from; y < to; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                counts[(int) (RED[(rgb >> 16) & 0xff] + GREEN[(rgb >> 8) & 0xff] + BLUE[rgb & 0xff])]++;
+            }
+        }
+    }
+
+    // Tom de cinza de cada amostra possível, pelo mesmo ColorModel que o getRGB usaria
+    private static int[] grayTable(ColorModel model, int bits) {
+        int[] table = new int[1 << bits];
+        for (int sample = 0; sample < table.length; sample++) {
+            int rgb;
+            if (model instanceof IndexColorModel) {
+                rgb = model.getRGB(sample);
+            } else {
+                rgb = model.getRGB(new byte[] {(byte) sample});
+            }
+            table[sample] = (int) (RED[(rgb >> 16) & 0xff] + GREEN[(rgb >> 8) & 0xff] + BLUE[rgb & 0xff]);
+        }
+        return table;
+    }
+
+    private int[] rgbRow(int width) {
+        if (rgbRow.length < width) {
+            rgbRow = new int[width];
+        }
+        return rgbRow;
+    }
+
+    private int[] sampleRow(int width) {
+        if (sampleRow.length < width) {
+            sampleRow = new int[width];
+        }
+        return sampleRow;
+    }
+
+    // Igual a String.format("%.4f", (double) count / total) para cada tom, sem o Formatter: o
+    // arredondamento (metade para cima) é feito em inteiros. A razão count / total só cai na
+    // metade exata quando o double também cai, então o resultado não muda. O separador decimal
+    // e os dígitos seguem o Locale padrão, como o String.format.
+    private void encodeText(int[] counts, long total) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        char separator = symbols.getDecimalSeparator();
+        char zero = symbols.getZeroDigit();
+        text.append(TEXT_HEADER);
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            if (total == 0) {
+                text.append("NaN");
+                continue;
+            }
+            long scaled = (counts[i] * 20000L + total) / (2 * total);
+            text.append((char) (zero + scaled / 10000)).append(separator);
+            int fraction = (int) (scaled % 10000);
+            for (int divisor = 1000; divisor > 0; divisor /= 10) {
+                text.append((char) (zero + fraction / divisor % 10));
+            }
+        }
+        text.append(']');
+    }
+
+    private void encodeQuantized(int[] counts, long total, boolean runLength) {
+        text.append(runLength ? RLE_HEADER : QUANTIZED_HEADER);
+        int i = 0;
+        boolean first = true;
+        while (i < counts.length) {
+            long value = total == 0 ? 0 : (counts[i] * 2000L + total) / (2 * total);
+            int run = 1;
+            if (runLength && value == 0) {
+                while (i + run < counts.length && (counts[i + run] * 2000L + total) / (2 * total) == 0) {
+                    run++;
+                }
+            }
+            if (!first) {
+                text.append(", ");
+            }
+            first = false;
+            if (run > 1) {
+                text.append("0x").append(run);
+            } else {
+                text.append(value);
+            }
+            i += run;
+        }
+        text.append(']');
+    }
+
+    private void encodeBase64(int[] counts, long total) {
+        ByteBuffer bytes = ByteBuffer.allocate(counts.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int count : counts) {
+            bytes.putShort((short) (total == 0 ? 0 : (count * 131070L + total) / (2 * total)));
+        }
+        text.append(BASE64_HEADER).append(Base64.getEncoder().encodeToString(bytes.array()));
+    }
+
+    // O toVector original, para comparar resultado e tempo
+    static String legacyVector(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] histogram = new int[256];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xff;
+                int g = (rgb >> 8) & 0xff;
+                int b = rgb & 0xff;
+                int gray = (int) (0.299 * r + 0.587 * g + 0.114 * b);
+                histogram[gray]++;
+            }
+        }
+        int totalPixels = 0;
+        for (int count : histogram) {
+            totalPixels += count;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(TEXT_HEADER);
+        for (int i = 0; i < histogram.length; i++) {
+            sb.append(String.format("%.4f", (double) histogram[i] / totalPixels));
+            if (i < histogram.length - 1) {
+                sb.append(", ");
+            }
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    // null se o arquivo não existir ou não for uma imagem: ImageIO.read lança exceção para o
+    // ausente (binary.jpg é saída do Otzu e pode ainda não existir) e devolve null para o resto
+    private static BufferedImage read(String name) {
+        try {
+            return ImageIO.read(new File(name));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Compara com o toVector original: tempo de extração, tamanho de cada codificação e se o
+    // texto é idêntico.   java -cp ... com.example.FeatureExtractor [imagem...]
+    public static void main(String[] args) throws Exception {
+        String[] files = args.length > 0 ? args : new String[] {"Flamengo.jpg", "binary.jpg"};
+        FeatureExtractor extractor = new FeatureExtractor();
+        for (String name : files) {
+            BufferedImage image = read(name);
+            if (image == null) {
+                System.err.println("Não foi possível ler " + name);
+                continue;
+            }
+            String legacy = legacyVector(image);
+            long legacyNanos = time(() -> legacyVector(image));
+            long sequentialNanos = time(() -> extractor.encode(extractor.histogram(image, false), Encoding.TEXT));
+            long parallelNanos = time(() -> extractor.encode(extractor.histogram(image, true), Encoding.TEXT));
+            String text = extractor.vector(image, Encoding.TEXT);
+
+            System.out.printf("%s (%dx%d, tipo %d): original %.2f ms, por linhas %.2f ms, paralelo %.2f ms, %s%n",
+                    name, image.getWidth(), image.getHeight(), image.getType(), legacyNanos / 1e6,
+                    sequentialNanos / 1e6, parallelNanos / 1e6,
+                    text.equals(legacy) ? "texto idêntico" : "TEXTO DIFERENTE");
+            for (Encoding encoding : Encoding.values()) {
+                System.out.printf("  %-9s %5d caracteres%n", encoding, extractor.vector(image, encoding).length());
+            }
+        }
+    }
+
+    // Mediana de algumas execuções, depois de aquecer
+    private static long time(Runnable task) {
+        for (int i = 0; i < 3; i++) {
+            task.run();
+        }
+        long[] runs = new long[7];
+        for (int i = 0; i < runs.length; i++) {
+            long start = System.nanoTime();
+            task.run();
+            runs[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(runs);
+        return runs[runs.length / 2];
+    }
+}
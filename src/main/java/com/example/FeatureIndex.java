@@ -0,0 +1,651 @@
+package com.example;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+// Índice local de histogramas já rotulados, para responder sem chamar o modelo remoto quando
+// já vimos imagens parecidas. Cada entrada é o histograma normalizado (a mesma fração por tom
+// do toVector) em float, guardado num único float[] contínuo (entrada i em i * DIM), e o
+// rótulo, guardado como número numa tabela de nomes.
+//
+// Busca: distância euclidiana ao quadrado contra todas as entradas, com o laço desenrolado em
+// 8 acumuladores independentes (o JIT não reordena somas de float, então um acumulador só
+// serializa as somas). Depois de train, índices grandes passam a ser buscados por quantização
+// de produto: o vetor é dividido em SUBSPACES pedaços de SUB_DIM tons, cada pedaço vira o índice do centro
+// mais próximo entre CENTROIDS (k-means), e a distância aproximada é a soma de SUBSPACES
+// consultas numa tabela montada por consulta; os melhores candidatos são reordenados pela
+// distância exata. Entradas novas depois do treino são codificadas com os mesmos centros.
+// Abaixo de MIN_QUANTIZED entradas a busca continua exata, que ali é tão rápida quanto e não
+// perde vizinhos.
+//
+// predict vota entre os k vizinhos com peso 1 / distância; a confiança é a fração do peso que
+// foi para o rótulo vencedor. O ImageClassifier só chama o modelo abaixo do limiar.
+//
+// Arquivo (save/load): "PDIX", versão, DIM, entradas, tabela de rótulos (tamanho e bytes
+// UTF-8 de cada um; a versão 1, ainda lida, usava writeUTF, limitado a 64 KB), rótulo e vetor
+// de cada entrada e, se treinado, os centros e os códigos.
+//
+//   java -cp ... com.example.FeatureIndex adicionar índice rótulo imagem...
+//   java -cp ... com.example.FeatureIndex consultar índice imagem...
+//   java -cp ... com.example.FeatureIndex treinar índice
+//   java -cp ... com.example.FeatureIndex medir [entradas] [consultas] [k]
+public class FeatureIndex {
+    public static final int DIM = 256;
+    static final int SUBSPACES = 32;
+    static final int SUB_DIM = DIM / SUBSPACES;
+    static final int CENTROIDS = 256;
+
+    private static final int MAGIC = 0x50444958; // "PDIX"
+    private static final int VERSION = 2;
+    private static final int TRAIN_SAMPLE = 8192;
+    private static final int TRAIN_ITERATIONS = 8;
+    // Candidatos da busca quantizada reordenados pela distância exata, por vizinho pedido
+    // (-Dclassificador.indice.candidatos)
+    private static final int RERANK = Integer.getInteger("classificador.indice.candidatos", 32);
+    // Tamanho mínimo para a busca quantizada (-Dclassificador.indice.minimo). No medir, com k 10,
+    // ela só passa a exata com folga por volta de 10000 entradas; abaixo disso a tabela por
+    // consulta e a reordenação custam quase o mesmo que percorrer tudo
+    private static final int MIN_QUANTIZED = Integer.getInteger("classificador.indice.minimo", 10000);
+
+    private float[] vectors = new float[16 * DIM];
+    private int[] labelOf = new int[16];
+    private int size;
+    private final List<String> labels = new ArrayList<>();
+    private final Map<String, Integer> labelIds = new HashMap<>();
+
+    // Quantização de produto: centros [SUBSPACES][centros][SUB_DIM] e SUBSPACES códigos por entrada
+    private float[] codebooks;
+    private int centroids;
+    private byte[] codes;
+
+    public static final class Neighbor {
+        public final String label;
+        public final float distance;
+
+        Neighbor(String label, float distance) {
+            this.label = label;
+            this.distance = distance;
+        }
+    }
+
+    public static final class Prediction {
+        public final String label;
+        public final double confidence;
+        public final Neighbor[] neighbors;
+
+        Prediction(String label, double confidence, Neighbor[] neighbors) {
+            this.label = label;
+            this.confidence = confidence;
+            this.neighbors = neighbors;
+        }
+    }
+
+    // Fração de pixels por tom, a mesma normalização do toVector
+    public static float[] features(int[] histogram) {
+        long total = 0;
+        for (int count : histogram) {
+            total += count;
+        }
+        float[] features = new float[DIM];
+        if (total > 0) {
+            for (int i = 0; i < DIM; i++) {
+                features[i] = (float) ((double) histogram[i] / total);
+            }
+        }
+        return features;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isTrained() {
+        return codebooks != null;
+    }
+
+    public synchronized void add(int[] histogram, String label) {
+        add(features(histogram), label);
+    }
+
+    public synchronized void add(float[] features, String label) {
+        if (features.length != DIM) {
+            throw new IllegalArgumentException("Vetor com " + features.length + " posições, esperado " + DIM);
+        }
+        if (size == labelOf.length) {
+            vectors = Arrays.copyOf(vectors, size * 2 * DIM);
+            labelOf = Arrays.copyOf(labelOf, size * 2);
+            if (codes != null) {
+                codes = Arrays.copyOf(codes, size * 2 * SUBSPACES);
+            }
+        }
+        System.arraycopy(features, 0, vectors, size * DIM, DIM);
+        Integer id = labelIds.get(label);
+        if (id == null) {
+            id = labels.size();
+            labels.add(label);
+            labelIds.put(label, id);
+        }
+        labelOf[size] = id;
+        if (codebooks != null) {
+            encode(size);
+        }
+        size++;
+    }
+
+    // Os k vizinhos mais próximos, do mais perto para o mais longe
+    public synchronized Neighbor[] search(float[] query, int k) {
+        int[] ids = usesQuantized(k) ? quantizedSearch(query, k, candidates(k)) : exactSearch(query, k);
+        Neighbor[] neighbors = new Neighbor[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            neighbors[i] = new Neighbor(labels.get(labelOf[ids[i]]), distance(query, vectors, ids[i] * DIM));
+        }
+        return neighbors;
+    }
+
+    // Só a busca exata, mesmo depois de treinar (referência para o recall)
+    public synchronized int[] exactSearch(float[] query, int k) {
+        TopK top = new TopK(Math.min(k, size));
+        for (int i = 0; i < size; i++) {
+            top.offer(i, distance(query, vectors, i * DIM));
+        }
+        return top.sorted();
+    }
+
+    // null com o índice vazio
+    public Prediction predict(float[] query, int k) {
+        Neighbor[] neighbors = search(query, k);
+        if (neighbors.length == 0) {
+            return null;
+        }
+        Map<String, Double> votes = new HashMap<>();
+        double total = 0;
+        for (Neighbor neighbor : neighbors) {
+            double weight = 1 / (Math.sqrt(neighbor.distance) + 1e-6);
+            votes.merge(neighbor.label, weight, Double::sum);
+            total += weight;
+        }
+        String best = null;
+        double bestWeight = -1;
+        for (Map.Entry<String, Double> vote : votes.entrySet()) {
+            if (vote.getValue() > bestWeight) {
+                best = vote.getKey();
+                bestWeight = vote.getValue();
+            }
+        }
+        return new Prediction(best, bestWeight / total, neighbors);
+    }
+
+    // Treina os centros da quantização com até TRAIN_SAMPLE entradas e codifica todas
+    public synchronized void train(long seed) {
+        if (size == 0) {
+            return;
+        }
+        Random random = new Random(seed);
+        int[] sample = sample(random, Math.min(size, TRAIN_SAMPLE));
+        centroids = Math.min(CENTROIDS, sample.length);
+        codebooks = new float[SUBSPACES * centroids * SUB_DIM];
+        int[] assignment = new int[sample.length];
+        for (int m = 0; m < SUBSPACES; m++) {
+            int book = m * centroids * SUB_DIM;
+            for (int c = 0; c < centroids; c++) {
+                System.arraycopy(vectors, sample[c] * DIM + m * SUB_DIM, codebooks, book + c * SUB_DIM, SUB_DIM);
+            }
+            float[] sums = new float[centroids * SUB_DIM];
+            int[] counts = new int[centroids];
+            for (int iteration = 0; iteration < TRAIN_ITERATIONS; iteration++) {
+                for (int s = 0; s < sample.length; s++) {
+                    assignment[s] = nearestCentroid(vectors, sample[s] * DIM + m * SUB_DIM, book);
+                }
+                Arrays.fill(sums, 0);
+                Arrays.fill(counts, 0);
+                for (int s = 0; s < sample.length; s++) {
+                    int c = assignment[s];
+                    counts[c]++;
+                    int from = sample[s] * DIM + m * SUB_DIM;
+                    for (int j = 0; j < SUB_DIM; j++) {
+                        sums[c * SUB_DIM + j] += vectors[from + j];
+                    }
+                }
+                for (int c = 0; c < centroids; c++) {
+                    if (counts[c] == 0) {
+                        // Centro sem ninguém: recomeça de uma entrada sorteada
+                        System.arraycopy(vectors, sample[random.nextInt(sample.length)] * DIM + m * SUB_DIM,
+                                codebooks, book + c * SUB_DIM, SUB_DIM);
+                        continue;
+                    }
+                    for (int j = 0; j < SUB_DIM; j++) {
+                        codebooks[book + c * SUB_DIM + j] = sums[c * SUB_DIM + j] / counts[c];
+                    }
+                }
+            }
+        }
+        codes = new byte[labelOf.length * SUBSPACES];
+        for (int i = 0; i < size; i++) {
+            encode(i);
+        }
+    }
+
+    public synchronized void save(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(DIM);
+                out.writeInt(size);
+                out.writeInt(labels.size());
+                for (String label : labels) {
+                    byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(labelOf[i]);
+                }
+                for (int i = 0; i < size * DIM; i++) {
+                    out.writeFloat(vectors[i]);
+                }
+                out.writeInt(codebooks == null ? 0 : centroids);
+                if (codebooks != null) {
+                    for (float value : codebooks) {
+                        out.writeFloat(value);
+                    }
+                    out.write(codes, 0, size * SUBSPACES);
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    public static FeatureIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " não é um índice de histogramas");
+            }
+            int version = in.readInt();
+            int dim = in.readInt();
+            if (version < 1 || version > VERSION || dim != DIM) {
+                throw new IOException(file + ": versão " + version + " com " + dim + " tons não suportada");
+            }
+            FeatureIndex index = new FeatureIndex();
+            int size = in.readInt();
+            int labelCount = in.readInt();
+            for (int i = 0; i < labelCount; i++) {
+                String label;
+                if (version == 1) {
+                    label = in.readUTF();
+                } else {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    label = new String(bytes, StandardCharsets.UTF_8);
+                }
+                index.labelIds.put(label, i);
+                index.labels.add(label);
+            }
+            int capacity = Math.max(16, size);
+            index.labelOf = new int[capacity];
+            index.vectors = new float[capacity * DIM];
+            for (int i = 0; i < size; i++) {
+                index.labelOf[i] = in.readInt();
+            }
+            for (int i = 0; i < size * DIM; i++) {
+                index.vectors[i] = in.readFloat();
+            }
+            index.size = size;
+            int centroids = in.readInt();
+            if (centroids > 0) {
+                index.centroids = centroids;
+                index.codebooks = new float[SUBSPACES * centroids * SUB_DIM];
+                for (int i = 0; i < index.codebooks.length; i++) {
+                    index.codebooks[i] = in.readFloat();
+                }
+                index.codes = new byte[capacity * SUBSPACES];
+                in.readFully(index.codes, 0, size * SUBSPACES);
+            }
+            return index;
+        }
+    }
+
+    // Distância euclidiana ao quadrado entre query e o vetor em data[offset..offset + DIM)
+    static float distance(float[] query, float[] data, int offset) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        for (int j = 0; j < DIM; j += 8) {
+            int i = offset + j;
+            float d0 = query[j] - data[i];
+            float d1 = query[j + 1] - data[i + 1];
+            float d2 = query[j + 2] - data[i + 2];
+            float d3 = query[j + 3] - data[i + 3];
+            float d4 = query[j + 4] - data[i + 4];
+            float d5 = query[j + 5] - data[i + 5];
+            float d6 = query[j + 6] - data[i + 6];
+            float d7 = query[j + 7] - data[i + 7];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+            s4 += d4 * d4;
+            s5 += d5 * d5;
+            s6 += d6 * d6;
+            s7 += d7 * d7;
+        }
+        return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+    }
+
+    // Quantizada só com o índice treinado, grande o bastante e com os candidatos reordenados
+    // sendo uma fração pequena das entradas
+    synchronized boolean usesQuantized(int k) {
+        return codebooks != null && size >= MIN_QUANTIZED && size >= 16 * candidates(k);
+    }
+
+    private static int candidates(int k) {
+        return Math.max(RERANK * k, 64);
+    }
+
+    // Candidatos pela distância aproximada (tabela por consulta), reordenados pela exata
+    private int[] quantizedSearch(float[] query, int k, int candidates) {
+        float[] table = new float[SUBSPACES * centroids];
+        for (int m = 0; m < SUBSPACES; m++) {
+            int book = m * centroids * SUB_DIM;
+            for (int c = 0; c < centroids; c++) {
+                float sum = 0;
+                for (int j = 0; j < SUB_DIM; j++) {
+                    float d = query[m * SUB_DIM + j] - codebooks[book + c * SUB_DIM + j];
+                    sum += d * d;
+                }
+                table[m * centroids + c] = sum;
+            }
+        }
+
+        TopK coarse = new TopK(Math.min(candidates, size));
+        for (int i = 0, code = 0; i < size; i++, code += SUBSPACES) {
+            float sum = 0;
+            for (int m = 0, row = 0; m < SUBSPACES; m++, row += centroids) {
+                sum += table[row + (codes[code + m] & 0xff)];
+            }
+            coarse.offer(i, sum);
+        }
+
+        TopK top = new TopK(Math.min(k, size));
+        for (int id : coarse.sorted()) {
+            top.offer(id, distance(query, vectors, id * DIM));
+        }
+        return top.sorted();
+    }
+
+    private void encode(int entry) {
+        for (int m = 0; m < SUBSPACES; m++) {
+            codes[entry * SUBSPACES + m] = (byte) nearestCentroid(vectors, entry * DIM + m * SUB_DIM,
+                    m * centroids * SUB_DIM);
+        }
+    }
+
+    private int nearestCentroid(float[] data, int offset, int book) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < centroids; c++) {
+            float sum = 0;
+            for (int j = 0; j < SUB_DIM; j++) {
+                float d = data[offset + j] - codebooks[book + c * SUB_DIM + j];
+                sum += d * d;
+            }
+            if (sum < bestDistance) {
+                bestDistance = sum;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    // count entradas distintas sorteadas (Fisher-Yates parcial)
+    private int[] sample(Random random, int count) {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+        }
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(size - i);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    // Os k menores por um heap de máximo em arrays
+    private static final class TopK {
+        private final int[] ids;
+        private final float[] distances;
+        private int count;
+
+        TopK(int k) {
+            ids = new int[k];
+            distances = new float[k];
+        }
+
+        void offer(int id, float distance) {
+            if (count < ids.length) {
+                int i = count++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    ids[i] = ids[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            } else if (count > 0 && distance < distances[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= count) {
+                        break;
+                    }
+                    if (child + 1 < count && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    ids[i] = ids[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            }
+        }
+
+        // Do mais perto para o mais longe
+        int[] sorted() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(distances[a], distances[b]));
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = ids[order[i]];
+            }
+            return result;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 0 ? args[0] : "medir";
+        switch (command) {
+            case "adicionar": {
+                File file = new File(args[1]);
+                FeatureIndex index = file.isFile() ? load(file) : new FeatureIndex();
+                for (int i = 3; i < args.length; i++) {
+                    index.add(histogram(args[i]), args[2]);
+                }
+                index.save(file);
+                System.out.println(file + ": " + index.size() + " entradas");
+                break;
+            }
+            case "consultar": {
+                FeatureIndex index = load(new File(args[1]));
+                for (int i = 2; i < args.length; i++) {
+                    Prediction prediction = index.predict(features(histogram(args[i])), 5);
+                    System.out.printf("%s: %s (confiança %.2f)%n", args[i],
+                            prediction == null ? "índice vazio" : prediction.label,
+                            prediction == null ? 0 : prediction.confidence);
+                }
+                break;
+            }
+            case "treinar": {
+                File file = new File(args[1]);
+                FeatureIndex index = load(file);
+                index.train(42);
+                index.save(file);
+                System.out.println(file + ": " + index.size() + " entradas, " + index.centroids + " centros");
+                break;
+            }
+            case "medir":
+                benchmark(args.length > 1 ? Integer.parseInt(args[1]) : 20000,
+                        args.length > 2 ? Integer.parseInt(args[2]) : 500,
+                        args.length > 3 ? Integer.parseInt(args[3]) : 10);
+                break;
+            default:
+                System.err.println("Uso: FeatureIndex adicionar|consultar|treinar|medir ...");
+        }
+    }
+
+    private static int[] histogram(String name) throws IOException {
+        BufferedImage image = ImageIO.read(new File(name));
+        if (image == null) {
+            throw new IOException("Não foi possível ler " + name);
+        }
+        return FeatureExtractor.forThread().histogram(image, true).clone();
+    }
+
+    // Latência (p50/p99 em µs) e recall@k da busca quantizada contra a exata, e acerto do
+    // predict, sobre histogramas sintéticos: CLASSES protótipos com ruído
+    private static void benchmark(int entries, int queries, int k) throws IOException {
+        final int classes = 50;
+        Random random = new Random(7);
+        float[][] prototypes = new float[classes][];
+        for (int c = 0; c < classes; c++) {
+            prototypes[c] = randomHistogram(random, null);
+        }
+        FeatureIndex index = new FeatureIndex();
+        for (int i = 0; i < entries; i++) {
+            index.add(randomHistogram(random, prototypes[i % classes]), "classe-" + (i % classes));
+        }
+        float[][] queryVectors = new float[queries][];
+        String[] expected = new String[queries];
+        for (int q = 0; q < queries; q++) {
+            int c = random.nextInt(classes);
+            queryVectors[q] = randomHistogram(random, prototypes[c]);
+            expected[q] = "classe-" + c;
+        }
+
+        long[] nanos = new long[queries];
+        int[][] truth = run(index, queryVectors, k, false, nanos);
+        report("exata", index, queryVectors, expected, k, nanos);
+
+        long start = System.nanoTime();
+        index.train(42);
+        System.out.printf("treino: %.1f s; o search usa a busca %s%n", (System.nanoTime() - start) / 1e9,
+                index.usesQuantized(k) ? "quantizada" : "exata");
+        int[][] found = run(index, queryVectors, k, true, nanos);
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            for (int id : found[q]) {
+                for (int t : truth[q]) {
+                    if (id == t) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        report(String.format("quantizada (recall@%d %.3f)", k, hits / (double) (queries * k)), index,
+                queryVectors, expected, k, nanos);
+
+        File file = File.createTempFile("indice", ".pdix");
+        try {
+            start = System.nanoTime();
+            index.save(file);
+            long saved = System.nanoTime() - start;
+            start = System.nanoTime();
+            FeatureIndex loaded = load(file);
+            System.out.printf("arquivo: %d KB, gravar %.0f ms, ler %.0f ms, %d entradas%n", file.length() / 1024,
+                    saved / 1e6, (System.nanoTime() - start) / 1e6, loaded.size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    // Busca cada consulta cinco vezes (as primeiras aquecem o JIT) e guarda o tempo da última
+    private static int[][] run(FeatureIndex index, float[][] queries, int k, boolean quantized, long[] nanos) {
+        int[][] results = new int[queries.length][];
+        for (int pass = 0; pass < 5; pass++) {
+            for (int q = 0; q < queries.length; q++) {
+                long start = System.nanoTime();
+                results[q] = quantized ? index.quantizedSearch(queries[q], k, candidates(k))
+                        : index.exactSearch(queries[q], k);
+                nanos[q] = System.nanoTime() - start;
+            }
+        }
+        return results;
+    }
+
+    private static void report(String name, FeatureIndex index, float[][] queries, String[] expected, int k,
+            long[] nanos) {
+        int correct = 0;
+        for (int q = 0; q < queries.length; q++) {
+            Prediction prediction = index.predict(queries[q], k);
+            if (prediction != null && prediction.label.equals(expected[q])) {
+                correct++;
+            }
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-30s %d entradas: p50 %.0f µs, p99 %.0f µs, predict certo %.1f%%%n", name, index.size(),
+                sorted[sorted.length / 2] / 1e3, sorted[(int) Math.ceil(0.99 * sorted.length) - 1] / 1e3,
+                100.0 * correct / queries.length);
+    }
+
+    // Histograma normalizado aleatório; com base, a base mais ruído (e renormalizado)
+    private static float[] randomHistogram(Random random, float[] base) {
+        float[] values = new float[DIM];
+        double total = 0;
+        for (int i = 0; i < DIM; i++) {
+            double value = base == null
+                    ? (random.nextInt(4) == 0 ? random.nextDouble() : 0)
+                    : Math.max(0, base[i] + random.nextGaussian() * 0.004);
+            values[i] = (float) value;
+            total += value;
+        }
+        for (int i = 0; i < DIM; i++) {
+            values[i] = (float) (values[i] / total);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example;
+
+import com.google.genai.Client;
+import com.google.genai.errors.ApiException;
+import com.google.genai.types.GenerateContentResponse;
+
+// Backend real: a API do Gemini pelo google-genai. O cliente só é criado no primeiro uso
+public class GeminiBackend implements ModelBackend {
+    private final String apiKey;
+    private Client client;
+
+    public GeminiBackend(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    private synchronized Client client() {
+        if (client == null) {
+            client = Client.builder().apiKey(apiKey).build();
+        }
+        return client;
+    }
+
+    @Override
+    public String generate(String model, String prompt) throws Exception {
+        try {
+            GenerateContentResponse response = client().models.generateContent(model, prompt, null);
+            return response.text();
+        } catch (ApiException e) {
+            // Erros da API trazem o código HTTP; o AsyncClassifier decide por ele se tenta de novo
+            throw new ModelCallException(e.code(), e.getMessage(), e);
+        }
+    }
+}
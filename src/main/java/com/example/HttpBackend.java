@@ -0,0 +1,61 @@
+package com.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+// Backend HTTP simples: POST do prompt em texto puro para um endereço, resposta no corpo.
+// Serve para o MockModelServer (-Dclassificador.backend=http -Dclassificador.url=...) e para
+// qualquer proxy que fale o mesmo formato. O HttpURLConnection reaproveita as conexões
+// (keep-alive) desde que o corpo seja lido até o fim; o número de conexões guardadas por
+// servidor vem de -Dhttp.maxConnections (padrão 5).
+public class HttpBackend implements ModelBackend {
+    private final URL endpoint;
+    private final int timeoutMillis;
+
+    public HttpBackend(URL endpoint, int timeoutMillis) {
+        this.endpoint = endpoint;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String generate(String model, String prompt) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+        connection.setRequestProperty("X-Model", model);
+        byte[] body = prompt.getBytes(StandardCharsets.UTF_8);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        String text = in == null ? "" : readAll(in);
+        if (status >= 400) {
+            // O código vai na exceção: o AsyncClassifier só tenta de novo 429 e 5xx
+            throw new ModelCallException(status, "HTTP " + status + " de " + endpoint + ": " + text, null);
+        }
+        return text;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
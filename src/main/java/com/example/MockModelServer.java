@@ -0,0 +1,132 @@
+package com.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Servidor local que imita o modelo, para medir e testar o classificador sem rede nem cota.
+// Cada POST espera latencyMillis, falha com 503 numa fração failureRate das vezes e responde
+// uma "classe" derivada do hash do vetor; prompts empacotados ("<n>: <vetor>" por linha)
+// recebem uma linha "<n>: <classe>" por vetor.
+//
+//   java -cp ... com.example.MockModelServer [porta] [latência ms] [taxa de falhas]
+public class MockModelServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final double failureRate;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // threads é quantas requisições o servidor atende ao mesmo tempo
+    public MockModelServer(int port, int threads, long latencyMillis, double failureRate) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        // Sem TCP_NODELAY o Nagle com o ACK atrasado segura cada resposta uns 40 ms, o que
+        // mediria o servidor simulado e não o classificador
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String prompt = readAll(exchange.getRequestBody());
+            requests.incrementAndGet();
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failures.incrementAndGet();
+                send(exchange, 503, "indisponível");
+                return;
+            }
+            send(exchange, 200, answer(prompt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "interrompido");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String answer(String prompt) {
+        if (prompt.startsWith(AsyncClassifier.PACKED_PROMPT)) {
+            StringBuilder sb = new StringBuilder();
+            for (String line : prompt.substring(AsyncClassifier.PACKED_PROMPT.length()).split("\n")) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    sb.append(line, 0, colon).append(": ").append(label(line.substring(colon + 1).trim())).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+        String vector = prompt.startsWith(ImageClassifier.PROMPT)
+                ? prompt.substring(ImageClassifier.PROMPT.length()) : prompt;
+        return label(vector);
+    }
+
+    // A mesma classe para o mesmo vetor, empacotado ou não
+    static String label(String vector) {
+        return "classe-" + Integer.toHexString(vector.hashCode() & 0xfff);
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        double failureRate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        MockModelServer server = new MockModelServer(port, 64, latency, failureRate);
+        System.out.println("Modelo simulado em " + server.url() + " (latência " + latency + " ms, falhas "
+                + failureRate + ")");
+    }
+}
@@ -0,0 +1,7 @@
+package com.example;
+
+// Modelo remoto que responde a um prompt de texto. O ImageClassifier usa o Gemini por padrão;
+// outra implementação (como o StubBackend) permite rodar e testar tudo sem rede.
+public interface ModelBackend {
+    String generate(String model, String prompt) throws Exception;
+}
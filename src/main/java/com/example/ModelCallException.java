@@ -0,0 +1,25 @@
+package com.example;
+
+import java.io.IOException;
+
+// Falha do modelo com o código HTTP da resposta. Só 429 (limite de cota) e 5xx são
+// passageiras; 400, 401, 403, 404 e afins (chave ou pedido errado) falham igual em toda
+// tentativa, então o AsyncClassifier não tenta de novo.
+public class ModelCallException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public ModelCallException(int status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isRetryable() {
+        return status == 429 || status >= 500;
+    }
+}
@@ -0,0 +1,372 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Cache das respostas do modelo em dois níveis: um LRU em memória e um diretório em disco
+// que sobrevive entre execuções. A chave é o SHA-256 do nome do modelo com o vetor (o texto
+// do toVector), então a mesma imagem, ou outra com o mesmo histograma, não volta à API.
+//
+// Em disco cada resposta é um arquivo <hash>.txt com a hora de criação na primeira linha; o
+// total é limitado em bytes e, ao passar do limite, saem os arquivos usados há mais tempo (a
+// data de modificação é atualizada a cada acerto). Entradas mais velhas que o TTL, nos dois
+// níveis, contam como falta e são apagadas.
+//
+// O hash e a E/S de disco ficam fora do monitor do cache, que guarda só o LRU, os contadores
+// e o total em disco; cada arquivo é protegido por uma de LOCKS travas (pela chave), então
+// chamadas em paralelo (o AsyncClassifier) só esperam umas pelas outras na mesma chave.
+//
+// Propriedades (fromSystemProperties):
+//   classificador.cache.memoria  entradas no LRU em memória (padrão 256)
+//   classificador.cache.disco    diretório do cache em disco (padrão .cache/classificador;
+//                                "nenhum" desliga o disco)
+//   classificador.cache.bytes    tamanho máximo em disco (padrão 64 MB)
+//   classificador.cache.ttl      validade em segundos (padrão 7 dias; 0 = sem validade)
+public class ResponseCache {
+    private static final String SUFFIX = ".txt";
+    private static final int LOCKS = 64;
+
+    private final int memoryEntries;
+    private final File directory;
+    private final long maxDiskBytes;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Cached> memory;
+    private final Object[] locks = new Object[LOCKS];
+    // Só uma thread por vez varre o diretório para remover
+    private final Object evicting = new Object();
+    private long diskBytes = -1;
+
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    private long expired;
+    private long evictions;
+
+    // directory null desliga o disco; ttlMillis <= 0 desliga a validade
+    public ResponseCache(int memoryEntries, File directory, long maxDiskBytes, long ttlMillis) {
+        this.memoryEntries = Math.max(0, memoryEntries);
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.ttlMillis = ttlMillis;
+        for (int i = 0; i < LOCKS; i++) {
+            locks[i] = new Object();
+        }
+        this.memory = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > ResponseCache.this.memoryEntries;
+            }
+        };
+    }
+
+    public static ResponseCache fromSystemProperties() {
+        String dir = System.getProperty("classificador.cache.disco", ".cache/classificador");
+        return new ResponseCache(
+                Integer.getInteger("classificador.cache.memoria", 256),
+                "nenhum".equals(dir) ? null : new File(dir),
+                Long.getLong("classificador.cache.bytes", 64L << 20),
+                TimeUnit.SECONDS.toMillis(Long.getLong("classificador.cache.ttl", TimeUnit.DAYS.toSeconds(7))));
+    }
+
+    // Chave hexadecimal do par (modelo, vetor)
+    public static String key(String model, String vector) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(vector.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Resposta guardada, ou null se não houver (ou tiver vencido)
+    public String get(String model, String vector) {
+        String key = key(model, vector);
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            Cached entry = memory.get(key);
+            if (entry != null) {
+                if (!isExpired(entry.created, now)) {
+                    memoryHits++;
+                    return entry.response;
+                }
+                memory.remove(key);
+                expired++;
+            }
+        }
+
+        Cached entry = null;
+        boolean stale = false;
+        if (directory != null) {
+            File file = file(key);
+            synchronized (lock(key)) {
+                entry = readEntry(file);
+                if (entry != null && isExpired(entry.created, now)) {
+                    delete(file);
+                    entry = null;
+                    stale = true;
+                } else if (entry != null) {
+                    file.setLastModified(now);
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (entry != null) {
+                diskHits++;
+                putMemory(key, entry);
+                return entry.response;
+            }
+            if (stale) {
+                expired++;
+            }
+            misses++;
+            return null;
+        }
+    }
+
+    public void put(String model, String vector, String response) {
+        if (response == null) {
+            return;
+        }
+        String key = key(model, vector);
+        Cached entry = new Cached(System.currentTimeMillis(), response);
+        synchronized (this) {
+            putMemory(key, entry);
+        }
+        if (directory != null) {
+            boolean full;
+            try {
+                synchronized (lock(key)) {
+                    full = writeEntry(key, entry);
+                }
+            } catch (IOException e) {
+                // Sem o disco o cache continua valendo em memória
+                System.err.println("Cache: não foi possível gravar " + file(key) + ": " + e.getMessage());
+                return;
+            }
+            if (full) {
+                evict(file(key));
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            memory.clear();
+        }
+        if (directory != null) {
+            for (File file : listFiles()) {
+                synchronized (lock(keyOf(file))) {
+                    delete(file);
+                }
+            }
+        }
+    }
+
+    public synchronized long memoryHits() {
+        return memoryHits;
+    }
+
+    public synchronized long diskHits() {
+        return diskHits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized double hitRate() {
+        long total = memoryHits + diskHits + misses;
+        return total == 0 ? 0 : (double) (memoryHits + diskHits) / total;
+    }
+
+    public String stats() {
+        long disk = directory == null ? 0 : diskBytes();
+        synchronized (this) {
+            return String.format("cache: %.1f%% de acertos (memória %d, disco %d, faltas %d, vencidas %d, "
+                    + "removidas %d; %d em memória, %d bytes em disco)",
+                    hitRate() * 100, memoryHits, diskHits, misses, expired, evictions, memory.size(), disk);
+        }
+    }
+
+    private boolean isExpired(long created, long now) {
+        return ttlMillis > 0 && now - created > ttlMillis;
+    }
+
+    private void putMemory(String key, Cached entry) {
+        if (memoryEntries > 0) {
+            memory.put(key, entry);
+        }
+    }
+
+    private File file(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    private static String keyOf(File file) {
+        String name = file.getName();
+        return name.substring(0, name.length() - SUFFIX.length());
+    }
+
+    // Trava do arquivo da chave; quem a segura pode pegar o monitor do cache, nunca o contrário
+    private Object lock(String key) {
+        return locks[(key.hashCode() & 0x7fffffff) % LOCKS];
+    }
+
+    // Com a trava da chave
+    private Cached readEntry(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            return new Cached(Long.parseLong(content.substring(0, newline)), content.substring(newline + 1));
+        } catch (IOException | RuntimeException e) {
+            // Arquivo truncado ou de outro formato: descarta
+            delete(file);
+            return null;
+        }
+    }
+
+    // Com a trava da chave; true se o disco passou do limite
+    private boolean writeEntry(String key, Cached entry) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("não foi possível criar o diretório");
+        }
+        File target = file(key);
+        byte[] bytes = (entry.created + "\n" + entry.response).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxDiskBytes) {
+            return false;
+        }
+        diskBytes();
+        long previous = target.isFile() ? target.length() : 0;
+
+        // Grava num temporário e renomeia, para outra execução nunca ler um arquivo pela metade
+        File temp = File.createTempFile(key, ".tmp", directory);
+        try {
+            Files.write(temp.toPath(), bytes);
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+        }
+        synchronized (this) {
+            diskBytes += bytes.length - previous;
+            return diskBytes > maxDiskBytes;
+        }
+    }
+
+    // Remove os arquivos acessados há mais tempo até caber no limite, sem tocar no recém-gravado.
+    // Sem nenhuma trava na entrada; o total é refeito da listagem, o que também corrige
+    // gravações que correram junto com a primeira soma do diretório
+    private void evict(File keep) {
+        synchronized (evicting) {
+            File[] files = listFiles();
+            long[] modified = new long[files.length];
+            Integer[] order = new Integer[files.length];
+            long total = 0;
+            for (int i = 0; i < files.length; i++) {
+                modified[i] = files[i].lastModified();
+                order[i] = i;
+                total += files[i].length();
+            }
+            synchronized (this) {
+                diskBytes = total;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> modified[i]));
+            for (int i : order) {
+                if (total <= maxDiskBytes) {
+                    break;
+                }
+                File file = files[i];
+                if (file.equals(keep)) {
+                    continue;
+                }
+                String key = keyOf(file);
+                synchronized (lock(key)) {
+                    long length = file.length();
+                    if (delete(file)) {
+                        total -= length;
+                        synchronized (this) {
+                            memory.remove(key);
+                            evictions++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Tamanho em disco, somado do diretório na primeira vez (pode haver arquivos de execuções
+    // anteriores) e mantido a cada gravação e remoção. A soma é feita fora do monitor
+    private long diskBytes() {
+        synchronized (this) {
+            if (diskBytes >= 0) {
+                return diskBytes;
+            }
+        }
+        long total = 0;
+        for (File file : listFiles()) {
+            total += file.length();
+        }
+        synchronized (this) {
+            if (diskBytes < 0) {
+                diskBytes = total;
+            }
+            return diskBytes;
+        }
+    }
+
+    private File[] listFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        return files == null ? new File[0] : files;
+    }
+
+    // Com a trava da chave do arquivo
+    private boolean delete(File file) {
+        long length = file.length();
+        if (!file.delete()) {
+            return false;
+        }
+        synchronized (this) {
+            if (diskBytes >= 0) {
+                diskBytes -= length;
+            }
+        }
+        return true;
+    }
+
+    private static final class Cached {
+        final long created;
+        final String response;
+
+        Cached(long created, String response) {
+            this.created = created;
+            this.response = response;
+        }
+    }
+}
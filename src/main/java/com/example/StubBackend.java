@@ -0,0 +1,33 @@
+package com.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Modelo local para rodar sem rede (-Dclassificador.backend=stub): responde na hora com um
+// texto que depende só do prompt e conta as chamadas, para conferir o cache
+public class StubBackend implements ModelBackend {
+    private final AtomicLong calls = new AtomicLong();
+    private final long delayMillis;
+
+    public StubBackend() {
+        this(0);
+    }
+
+    // delayMillis simula a latência da rede
+    public StubBackend(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public String generate(String model, String prompt) throws Exception {
+        calls.incrementAndGet();
+        if (delayMillis > 0) {
+            Thread.sleep(delayMillis);
+        }
+        return "stub " + model + ": prompt de " + prompt.length() + " caracteres, hash "
+                + Integer.toHexString(prompt.hashCode());
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+}